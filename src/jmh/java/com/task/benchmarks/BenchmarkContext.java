@@ -0,0 +1,57 @@
+package com.task.benchmarks;
+
+import com.task.RestApiTaskApplication;
+import com.task.entities.Category;
+import com.task.entities.Product;
+import com.task.repositories.CategoryRepo;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Starts the application without a web server against the in-memory H2 stand-in (test profile)
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        return builder(new String[]{"test"}, properties).run();
+    }
+
+    // The test profile plus others layered on top of it, e.g. production for its pool and Hibernate settings
+    static SpringApplicationBuilder builder(String[] profiles, String... properties) {
+        return new SpringApplicationBuilder(RestApiTaskApplication.class)
+                .profiles(profiles)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN", "logging.level.com.task=WARN", "spring.main.banner-mode=off")
+                .properties(properties);
+    }
+
+    static Category saveCategory(ConfigurableApplicationContext context, String name) {
+        Category category = new Category();
+        category.setCategoryName(name);
+        category.setDescription(name + " description");
+        return context.getBean(CategoryRepo.class).save(category);
+    }
+
+    static List<Product> products(Category category, String namePrefix, int count) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(product(category, namePrefix + i));
+        }
+        return products;
+    }
+
+    static Product product(Category category, String name) {
+        Product product = new Product();
+        product.setProductName(name);
+        product.setDescription("Description of " + name);
+        product.setPrice(499.99);
+        product.setQuantity(10);
+        product.setCategory(category);
+        return product;
+    }
+}
@@ -0,0 +1,235 @@
+package com.task.benchmarks;
+
+import com.task.dto.KeysetResponse;
+import com.task.dto.StockChange;
+import com.task.entities.Category;
+import com.task.entities.Product;
+import com.task.repositories.ProductRepo;
+import com.task.services.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// The default configuration against the production profile under 8 concurrent clients. On the H2 stand-in every
+// call that Connector/J would send to MySQL waits one network round trip, counted the way the driver options of
+// the profile decide (see RoundTrips). The H2 difference between the profiles is therefore the round trips this
+// model skips, not a measurement of the driver: it only checks that the profile is wired up and how the pool behaves.
+// Only the run against a local mysqld, where the real driver does the counting, is evidence for the profile:
+//   mvn -Pbenchmarks -DskipTests verify -Djmh.args="DatabaseProfileBenchmark -jvmArgsAppend
+//     '-Dspring.datasource.url=jdbc:mysql://localhost:3306/task -Dspring.datasource.driver-class-name=com.mysql.cj.jdbc.Driver
+//      -Dspring.datasource.username=... -Dspring.datasource.password=... -Dspring.flyway.enabled=true
+//      -Dspring.jpa.hibernate.ddl-auto=validate'"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+public class DatabaseProfileBenchmark {
+
+    private static final int PRODUCTS = 10_000;
+    private static final int PAGE_SIZE = 20;
+    private static final StockChange ONE = new StockChange(1);
+    // Same availability zone
+    private static final long ROUND_TRIP_NANOS = 300_000;
+
+    @Param({"default", "production"})
+    public String profile;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private Category category;
+    private long firstProductId;
+    private final List<String> cursors = new ArrayList<>();
+    private final AtomicLong nextName = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        // 4 database cores size the production pool at 9, neither pool runs out of connections for 8 clients
+        String[] profiles = profile.equals("production") ? new String[]{"test", "production"} : new String[]{"test"};
+        boolean h2 = System.getProperty("spring.datasource.url") == null;
+        context = BenchmarkContext.builder(profiles, "DB_CORES=4", "spring.datasource.hikari.maximum-pool-size=10")
+                .initializers(ctx -> {
+                    if (h2) {
+                        ctx.getBeanFactory().addBeanPostProcessor(new RoundTrips(ctx.getEnvironment()));
+                    }
+                })
+                .run();
+        productService = context.getBean(ProductService.class);
+
+        category = BenchmarkContext.saveCategory(context, "Electronics " + System.nanoTime());
+        for (int from = 0; from < PRODUCTS; from += 1_000) {
+            productService.addProducts(BenchmarkContext.products(category, "Product " + from + "-", 1_000));
+        }
+        firstProductId = context.getBean(ProductRepo.class).findMinProductId();
+
+        // the cursor of every page, for reads spread over the table
+        String cursor = null;
+        do {
+            cursor = ((KeysetResponse<?>) productService.getProductsAfter(cursor, PAGE_SIZE).getBody()).nextCursor();
+            cursors.add(cursor);
+        } while (cursor != null && cursors.size() < PRODUCTS / PAGE_SIZE - 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    // Batch loads of 1 to 64 products: one multi-row INSERT per batch of 50 with rewriteBatchedStatements
+    @Benchmark
+    public ResponseEntity<?> ingest() {
+        int size = 1 + ThreadLocalRandom.current().nextInt(64);
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            products.add(BenchmarkContext.product(category, "Ingested " + nextName.incrementAndGet()));
+        }
+        return productService.addProducts(products);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> keysetPage() {
+        return productService.getProductsAfter(cursors.get(ThreadLocalRandom.current().nextInt(cursors.size())), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> reserve() {
+        return productService.reserveStock(firstProductId + ThreadLocalRandom.current().nextInt(PRODUCTS), ONE);
+    }
+
+    // Wraps the pool so that every JDBC call Connector/J would send to the server first waits ROUND_TRIP_NANOS:
+    // statement executions (one per statement of a batch unless rewriteBatchedStatements), commit and rollback,
+    // autocommit / read-only / isolation changes (skipped when unchanged with useLocalSessionState), and the first
+    // prepare of a statement on a connection with useServerPrepStmts (every prepare without cachePrepStmts).
+    private static final class RoundTrips implements BeanPostProcessor {
+
+        private final boolean rewriteBatches;
+        private final boolean localSessionState;
+        private final boolean serverPrepare;
+        private final boolean cachePrepared;
+
+        RoundTrips(Environment environment) {
+            String prefix = "spring.datasource.hikari.data-source-properties.";
+            this.rewriteBatches = environment.getProperty(prefix + "rewriteBatchedStatements", Boolean.class, false);
+            this.localSessionState = environment.getProperty(prefix + "useLocalSessionState", Boolean.class, false);
+            this.serverPrepare = environment.getProperty(prefix + "useServerPrepStmts", Boolean.class, false);
+            this.cachePrepared = environment.getProperty(prefix + "cachePrepStmts", Boolean.class, false);
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof DelegatingDataSource)) {
+                return new DelegatingDataSource(dataSource) {
+                    @Override
+                    public Connection getConnection() throws SQLException {
+                        return connection(super.getConnection());
+                    }
+                };
+            }
+            return bean;
+        }
+
+        private Connection connection(Connection target) throws SQLException {
+            // the driver's view of the session, per physical connection
+            SessionState session = SessionState.of(target);
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "commit", "rollback" -> roundTrip();
+                            case "setAutoCommit", "setReadOnly", "setTransactionIsolation" -> {
+                                if (!localSessionState || !args[0].equals(session.values.get(method.getName()))) {
+                                    roundTrip();
+                                }
+                                session.values.put(method.getName(), args[0]);
+                            }
+                            case "prepareStatement" -> {
+                                if (serverPrepare && (!cachePrepared || session.prepared.add((String) args[0]))) {
+                                    roundTrip();
+                                }
+                            }
+                            default -> {
+                            }
+                        }
+                        Object result = invoke(method, target, args);
+                        if (result instanceof PreparedStatement statement) {
+                            return statement(PreparedStatement.class, statement);
+                        }
+                        if (result instanceof Statement statement) {
+                            return statement(Statement.class, statement);
+                        }
+                        return result;
+                    });
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T extends Statement> T statement(Class<T> type, T target) {
+            AtomicInteger batched = new AtomicInteger();
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                String name = method.getName();
+                if (name.equals("addBatch")) {
+                    batched.incrementAndGet();
+                } else if (name.equals("executeBatch") || name.equals("executeLargeBatch")) {
+                    int statements = batched.getAndSet(0);
+                    for (int i = rewriteBatches ? Math.min(statements, 1) : statements; i > 0; i--) {
+                        roundTrip();
+                    }
+                } else if (name.startsWith("execute")) {
+                    roundTrip();
+                }
+                return invoke(method, target, args);
+            });
+        }
+
+        private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+
+        private static void roundTrip() {
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+        }
+    }
+
+    // Session values and server-prepared statements of one physical connection, kept across pool checkouts
+    private static final class SessionState {
+
+        private static final Map<Connection, SessionState> SESSIONS = Collections.synchronizedMap(new WeakHashMap<>());
+
+        final Map<String, Object> values = new ConcurrentHashMap<>();
+        final Set<String> prepared = Collections.synchronizedSet(new HashSet<>());
+
+        static SessionState of(Connection connection) throws SQLException {
+            Connection physical = connection.isWrapperFor(Connection.class) ? connection.unwrap(Connection.class) : connection;
+            return SESSIONS.computeIfAbsent(physical, c -> new SessionState());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.task.benchmarks;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import com.task.entities.Category;
+import com.task.entities.Product;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+// Per-request logging cost on a hot path with concurrent request threads: the former System.out.println of a
+// String.format-ed entity against SLF4J through the async appender, for unsampled and sampled requests.
+// Console output is discarded so only the logging path itself is measured.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class LoggingBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger("com.task.services.ProductService");
+
+    private Product product;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setUp() throws Exception {
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream(), true));
+
+        // same async appender and sampling filter as the application
+        LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        loggerContext.reset();
+        JoranConfigurator configurator = new JoranConfigurator();
+        configurator.setContext(loggerContext);
+        configurator.doConfigure(LoggingBenchmark.class.getResource("/logback-spring.xml"));
+        loggerContext.getLogger("com.task").setLevel(ch.qos.logback.classic.Level.DEBUG);
+
+        Category category = new Category();
+        category.setCategoryId(1);
+        category.setCategoryName("Electronics");
+        product = BenchmarkContext.product(category, "Laptop GenZ");
+        product.setProductId(42);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public void systemOutWithFormattedEntity() {
+        System.out.println("addProduct >> product : \n" + String.format(
+                "Product >> {productId=%d, productName='%s', category='%s', price=%.2f, quantity=%d, description='%s', createdAt=%s, updatedAt=%s}%n",
+                product.getProductId(), product.getProductName(), product.getCategory().getCategoryName(), product.getPrice(),
+                product.getQuantity(), product.getDescription(), product.getCreatedAt(), product.getUpdatedAt()));
+    }
+
+    @Benchmark
+    public void slf4jUnsampledRequest() {
+        log.debug("addProduct >> productName : {}", product.getProductName());
+    }
+
+    @Benchmark
+    public void slf4jSampledRequest() {
+        MDC.put("sampled", "true");
+        try {
+            log.debug("addProduct >> productName : {}", product.getProductName());
+        } finally {
+            MDC.remove("sampled");
+        }
+    }
+}
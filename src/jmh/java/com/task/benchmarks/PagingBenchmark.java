@@ -0,0 +1,62 @@
+package com.task.benchmarks;
+
+import com.task.dto.KeysetResponse;
+import com.task.entities.Category;
+import com.task.services.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+// getAllProducts (OFFSET paging) against the keyset mode at increasing depths of the same table
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PagingBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int ROWS = 40_000;
+
+    @Param({"0", "100", "1000", "1900"})
+    public int page;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private String cursor;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        productService = context.getBean(ProductService.class);
+
+        Category category = BenchmarkContext.saveCategory(context, "Electronics");
+        for (int batch = 0; batch < ROWS / 10_000; batch++) {
+            productService.addProducts(BenchmarkContext.products(category, "Product " + batch + "-", 10_000));
+        }
+
+        // walk the keyset pages once to get the cursor that starts at the same depth as the offset page
+        cursor = "";
+        for (int i = 0; i < page; i++) {
+            cursor = ((KeysetResponse<?>) productService.getProductsAfter(cursor, PAGE_SIZE).getBody()).nextCursor();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<?> offsetPage() {
+        return productService.getAllProducts(page, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> keysetPage() {
+        return productService.getProductsAfter(cursor, PAGE_SIZE);
+    }
+}
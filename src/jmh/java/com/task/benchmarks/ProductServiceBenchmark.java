@@ -0,0 +1,65 @@
+package com.task.benchmarks;
+
+import com.task.entities.Category;
+import com.task.entities.Product;
+import com.task.services.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+// ProductService.addProduct paths that do not add a product: field validation, category lookup and a name rejected by uk_products_product_name
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+
+    private Product invalidPrice;
+    private Product duplicateName;
+    private Product unknownCategory;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        productService = context.getBean(ProductService.class);
+
+        Category category = BenchmarkContext.saveCategory(context, "Electronics");
+        productService.addProducts(BenchmarkContext.products(category, "Laptop ", 1_000));
+
+        invalidPrice = BenchmarkContext.product(category, "Laptop X");
+        invalidPrice.setPrice(0);
+
+        duplicateName = BenchmarkContext.product(category, "Laptop 500");
+
+        Category missing = new Category();
+        missing.setCategoryId(Long.MAX_VALUE);
+        unknownCategory = BenchmarkContext.product(missing, "Laptop unknown");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<?> validationFailure() {
+        return productService.addProduct(invalidPrice);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> duplicateNameRejected() {
+        return productService.addProduct(duplicateName);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> unknownCategoryLookup() {
+        return productService.addProduct(unknownCategory);
+    }
+}
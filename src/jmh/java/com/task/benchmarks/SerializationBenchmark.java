@@ -0,0 +1,97 @@
+package com.task.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.task.dto.ApiResponse;
+import com.task.entities.Category;
+import com.task.entities.Product;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Jackson serialization of the response envelopes, with the mapper configured like Spring Boot's: the untyped HashMap
+// envelopes built per request against the typed records written through a pre-built ObjectWriter.
+// Allocation per operation: mvn -Pbenchmarks -DskipTests verify -Djmh.args="SerializationBenchmark -prof gc"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final ApiResponse<Void> PRODUCT_NOT_FOUND = ApiResponse.error(404, "Product not found in the system.");
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter apiResponseWriter;
+    private Product product;
+    private List<Product> products;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        apiResponseWriter = objectMapper.writerFor(ApiResponse.class);
+
+        Category category = new Category();
+        category.setCategoryId(1);
+        category.setCategoryName("Electronics");
+        category.setDescription("All electronic products");
+
+        products = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Product p = BenchmarkContext.product(category, "Laptop " + i);
+            p.setProductId(i + 1);
+            products.add(p);
+        }
+        product = products.get(0);
+    }
+
+    @Benchmark
+    public byte[] singleProductMap() throws Exception {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Request successful");
+        response.put("data", product);
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] productPageMap() throws Exception {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Request successful");
+        response.put("data", products.stream());
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] errorMap() throws Exception {
+        Map<String, Object> errorMap = new HashMap<>();
+        errorMap.put("code", 404);
+        errorMap.put("details", "Product not found in the system.");
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", errorMap);
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] singleProductRecord() throws Exception {
+        return apiResponseWriter.writeValueAsBytes(ApiResponse.ok("Request successful", product));
+    }
+
+    @Benchmark
+    public byte[] productPageRecord() throws Exception {
+        return apiResponseWriter.writeValueAsBytes(ApiResponse.ok("Request successful", products));
+    }
+
+    @Benchmark
+    public byte[] errorRecord() throws Exception {
+        return apiResponseWriter.writeValueAsBytes(PRODUCT_NOT_FOUND);
+    }
+}
@@ -0,0 +1,67 @@
+package com.task.benchmarks;
+
+import com.task.dto.StockChange;
+import com.task.entities.Category;
+import com.task.entities.Product;
+import com.task.repositories.ProductRepo;
+import com.task.services.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+// Stock reservations of 1, 8 and 64 concurrent clients on the same product,
+// each UPDATE on its own against concurrent changes combined by StockAggregator
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockContentionBenchmark {
+
+    private static final StockChange ONE = new StockChange(1);
+
+    @Param({"false", "true"})
+    public boolean aggregation;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private long productId;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("app.stock.aggregation.enabled=" + aggregation,
+                "spring.datasource.hikari.maximum-pool-size=64");
+        productService = context.getBean(ProductService.class);
+
+        Category category = BenchmarkContext.saveCategory(context, "Electronics");
+        Product product = BenchmarkContext.product(category, "Hot product");
+        product.setQuantity(Integer.MAX_VALUE);
+        productId = context.getBean(ProductRepo.class).save(product).getProductId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ResponseEntity<?> reserve1Client() {
+        return productService.reserveStock(productId, ONE);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ResponseEntity<?> reserve8Clients() {
+        return productService.reserveStock(productId, ONE);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public ResponseEntity<?> reserve64Clients() {
+        return productService.reserveStock(productId, ONE);
+    }
+}
@@ -0,0 +1,116 @@
+package com.task.benchmarks;
+
+import com.task.config.TextSearchProperties;
+import com.task.dto.ProductIndexEntry;
+import com.task.dto.TextSearchHit;
+import com.task.services.ProductTextIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Latency distribution (p50/p99 in the SampleTime output) of text searches over a million products, in an index
+// on disk (memory-mapped) as in production. Names are 3 and descriptions 12 words of a 20k-word vocabulary.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TextSearchBenchmark {
+
+    private static final int PRODUCTS = 1_000_000;
+    private static final int WORDS = 20_000;
+
+    // one word, two words, a 3-letter prefix, a misspelt word, and a misspelt word plus a prefix
+    @Param({"keyword", "twoKeywords", "prefix", "typo", "typoAndPrefix"})
+    public String query;
+
+    private Path indexPath;
+    private ProductTextIndex index;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        String[] words = new String[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            words[i] = word(random);
+        }
+
+        indexPath = Files.createTempDirectory("text-index");
+        index = new ProductTextIndex(new TextSearchProperties(indexPath.toString(),
+                TextSearchProperties.Rebuild.NEVER, 0, 0, null));
+        List<ProductIndexEntry> batch = new ArrayList<>();
+        for (long id = 1; id <= PRODUCTS; id++) {
+            batch.add(new ProductIndexEntry(id, sentence(random, words, 3), sentence(random, words, 12), id % 50));
+            if (batch.size() == 10_000) {
+                index.index(batch);
+                batch.clear();
+            }
+        }
+        index.refresh();
+
+        queries = new String[256];
+        for (int i = 0; i < queries.length; i++) {
+            String word = words[random.nextInt(WORDS)];
+            String other = words[random.nextInt(WORDS)];
+            queries[i] = switch (query) {
+                case "keyword" -> word;
+                case "twoKeywords" -> word + " " + other;
+                case "prefix" -> word.substring(0, 3);
+                case "typo" -> typo(word);
+                default -> typo(word) + " " + other.substring(0, 3);
+            };
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.destroy();
+        try (Stream<Path> files = Files.walk(indexPath)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<TextSearchHit> search() throws IOException {
+        return index.search(queries[next++ & (queries.length - 1)], 10);
+    }
+
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        int syllables = 2 + random.nextInt(3);
+        for (int i = 0; i < syllables; i++) {
+            word.append("bcdfghklmnprstvz".charAt(random.nextInt(16))).append("aeiou".charAt(random.nextInt(5)));
+        }
+        return word.toString();
+    }
+
+    private static String sentence(Random random, String[] words, int length) {
+        StringBuilder sentence = new StringBuilder(words[random.nextInt(WORDS)]);
+        for (int i = 1; i < length; i++) {
+            sentence.append(' ').append(words[random.nextInt(WORDS)]);
+        }
+        return sentence.toString();
+    }
+
+    // swaps two letters after the first one
+    private static String typo(String word) {
+        char[] chars = word.toCharArray();
+        char c = chars[1];
+        chars[1] = chars[2];
+        chars[2] = c;
+        return new String(chars);
+    }
+}
@@ -0,0 +1,88 @@
+package com.task.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Concurrency limit that follows the latency of the requests it admits (gradient algorithm, as in Netflix's
+// concurrency-limits). A short and a long moving average of the round trip are kept: while the short one stays within
+// RTT_TOLERANCE of the long one the limit grows by about its square root per sample, once it rises above it the limit
+// shrinks by the ratio long / short (at most by half). Requests past the limit are refused, not queued, so the
+// database sees a concurrency it can serve without its latency (and the queue in front of the pool) growing.
+public class AdaptiveConcurrencyLimit {
+
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 500;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    // guarded by this
+    private double shortRtt;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Ends an admitted request and adjusts the limit to how long it took
+    public void release(long rttNanos) {
+        int flight = inFlight.getAndDecrement();
+        if (rttNanos > 0) {
+            sample(rttNanos, flight);
+        }
+    }
+
+    // Ends an admitted request whose duration says nothing about the database (handed off to another thread)
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void sample(long rtt, int flight) {
+        if (longRtt == 0) {
+            shortRtt = rtt;
+            longRtt = rtt;
+            return;
+        }
+        shortRtt += (rtt - shortRtt) / SHORT_WINDOW;
+        longRtt += (rtt - longRtt) / LONG_WINDOW;
+        // after a long overload the baseline has crept up, let it come back down quickly
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        double current = limit;
+        // far below the limit the latency does not depend on it, nothing to learn from this sample
+        if (flight < current / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRtt / shortRtt));
+        double target = current * gradient + Math.sqrt(current);
+        double next = current * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+}
@@ -0,0 +1,115 @@
+package com.task.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.task.dto.ApiResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.io.IOException;
+
+// Load shedding in front of the controllers: GET and HEAD requests take a slot of the reads bulkhead, everything else
+// one of the writes bulkhead. When the bulkhead is full the request is answered 503 with Retry-After at once, before
+// it waits on the connection pool, so the admitted requests keep their latency while the database is slow.
+public class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+
+    static final String LIMIT_METRIC = "app.admission.limit";
+    static final String IN_FLIGHT_METRIC = "app.admission.inflight";
+    static final String REJECTED_METRIC = "app.admission.rejected";
+
+    private static final String ADMISSION = AdmissionControlInterceptor.class.getName() + ".admission";
+    private static final ApiResponse<Void> OVERLOADED =
+            ApiResponse.error(HttpStatus.SERVICE_UNAVAILABLE.value(), "Server is busy, please retry later");
+
+    private final AdaptiveConcurrencyLimit reads;
+    private final AdaptiveConcurrencyLimit writes;
+    private final Counter readsRejected;
+    private final Counter writesRejected;
+    private final String retryAfter;
+    private final byte[] overloadedBody;
+
+    public AdmissionControlInterceptor(AdmissionControlProperties properties, ObjectMapper objectMapper,
+                                       MeterRegistry meterRegistry) {
+        this.reads = properties.reads().newLimit();
+        this.writes = properties.writes().newLimit();
+        this.readsRejected = register(meterRegistry, "reads", reads);
+        this.writesRejected = register(meterRegistry, "writes", writes);
+        this.retryAfter = String.valueOf(properties.retryAfter().toSeconds());
+        try {
+            this.overloadedBody = objectMapper.writeValueAsBytes(OVERLOADED);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize the overload response", e);
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        // the async dispatch of a streamed response was admitted with its request
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        boolean read = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+        AdaptiveConcurrencyLimit limit = read ? reads : writes;
+        if (limit.tryAcquire()) {
+            request.setAttribute(ADMISSION, new Admission(limit, System.nanoTime()));
+            return true;
+        }
+
+        (read ? readsRejected : writesRejected).increment();
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(overloadedBody.length);
+        response.getOutputStream().write(overloadedBody);
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Admission admission = take(request);
+        if (admission != null) {
+            admission.limit.release(System.nanoTime() - admission.startNanos);
+        }
+    }
+
+    // Streamed responses (the export) leave the bulkhead when the handler returns, their duration is not sampled
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Admission admission = take(request);
+        if (admission != null) {
+            admission.limit.release();
+        }
+    }
+
+    private static Admission take(HttpServletRequest request) {
+        Admission admission = (Admission) request.getAttribute(ADMISSION);
+        if (admission != null) {
+            request.removeAttribute(ADMISSION);
+        }
+        return admission;
+    }
+
+    private static Counter register(MeterRegistry meterRegistry, String bulkhead, AdaptiveConcurrencyLimit limit) {
+        Gauge.builder(LIMIT_METRIC, limit, AdaptiveConcurrencyLimit::limit)
+                .tag("bulkhead", bulkhead)
+                .register(meterRegistry);
+        Gauge.builder(IN_FLIGHT_METRIC, limit, AdaptiveConcurrencyLimit::inFlight)
+                .tag("bulkhead", bulkhead)
+                .register(meterRegistry);
+        return Counter.builder(REJECTED_METRIC)
+                .tag("bulkhead", bulkhead)
+                .register(meterRegistry);
+    }
+
+    private record Admission(AdaptiveConcurrencyLimit limit, long startNanos) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.task.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Admission control of the product and category endpoints (see AdmissionControlInterceptor). Reads and writes are
+// separate bulkheads, each with an adaptive limit between minLimit and maxLimit, so a burst of slow writes cannot
+// take the capacity of the reads. Rejected requests are told to come back after retryAfter.
+@ConfigurationProperties(prefix = "app.admission")
+public record AdmissionControlProperties(boolean enabled, Bulkhead reads, Bulkhead writes, Duration retryAfter) {
+
+    public AdmissionControlProperties {
+        reads = reads == null ? new Bulkhead(20, 4, 200) : reads;
+        writes = writes == null ? new Bulkhead(10, 2, 50) : writes;
+        retryAfter = retryAfter == null || retryAfter.toSeconds() < 1 ? Duration.ofSeconds(1) : retryAfter;
+    }
+
+    public record Bulkhead(int initialLimit, int minLimit, int maxLimit) {
+
+        public Bulkhead {
+            minLimit = Math.max(1, minLimit);
+            maxLimit = Math.max(minLimit, maxLimit);
+            initialLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        }
+
+        AdaptiveConcurrencyLimit newLimit() {
+            return new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.task.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.task.dto.ApiResponse;
+import com.task.dto.KeysetResponse;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+// Writes the response envelopes with ObjectWriters built once at startup, instead of the generic Jackson converter
+// resolving the type and building a writer on every response. Registered ahead of it in WebConfig.
+public class ApiResponseMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    private final ObjectWriter apiResponseWriter;
+    private final ObjectWriter keysetResponseWriter;
+
+    public ApiResponseMessageConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON);
+        // the servlet output stream is closed by the container, not by Jackson
+        this.apiResponseWriter = objectMapper.writerFor(ApiResponse.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.keysetResponseWriter = objectMapper.writerFor(KeysetResponse.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == ApiResponse.class || clazz == KeysetResponse.class;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;   // response bodies only
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Response envelopes are not read", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object body, HttpOutputMessage outputMessage) throws IOException {
+        ObjectWriter writer = body instanceof ApiResponse<?> ? apiResponseWriter : keysetResponseWriter;
+        writer.writeValue(outputMessage.getBody(), body);
+    }
+}
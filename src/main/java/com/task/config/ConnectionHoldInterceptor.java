@@ -0,0 +1,48 @@
+package com.task.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.concurrent.TimeUnit;
+
+// Records how long each request held pooled connections in total (app.request.connection.hold), tagged with the
+// controller method. With open-session-in-view off this ends with the service transaction, not with the response.
+public class ConnectionHoldInterceptor implements AsyncHandlerInterceptor {
+
+    static final String METRIC_NAME = "app.request.connection.hold";
+
+    private final MeterRegistry meterRegistry;
+
+    public ConnectionHoldInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            ConnectionHoldTracker.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        long held = ConnectionHoldTracker.stop();
+        if (held >= 0 && handler instanceof HandlerMethod handlerMethod) {
+            Timer.builder(METRIC_NAME)
+                    .tag("method", handlerMethod.getMethod().getName())
+                    .register(meterRegistry)
+                    .record(held, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Streamed responses (the export) continue on another thread and are not counted
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ConnectionHoldTracker.stop();
+    }
+}
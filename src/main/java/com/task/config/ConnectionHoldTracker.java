@@ -0,0 +1,72 @@
+package com.task.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Adds up, per request thread, how long the connections taken from the pool are held: from getConnection to close.
+// Started and recorded by ConnectionHoldInterceptor, connections taken outside a request are not counted.
+final class ConnectionHoldTracker {
+
+    private static final ThreadLocal<long[]> HELD_NANOS = new ThreadLocal<>();
+
+    private ConnectionHoldTracker() {
+    }
+
+    static void start() {
+        HELD_NANOS.set(new long[1]);
+    }
+
+    // Nanoseconds held since start, -1 when the thread was not tracked
+    static long stop() {
+        long[] held = HELD_NANOS.get();
+        HELD_NANOS.remove();
+        return held == null ? -1 : held[0];
+    }
+
+    static DataSource track(DataSource dataSource) {
+        return dataSource instanceof TrackingDataSource ? dataSource : new TrackingDataSource(dataSource);
+    }
+
+    private static final class TrackingDataSource extends DelegatingDataSource {
+
+        TrackingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return tracked(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return tracked(super.getConnection(username, password));
+        }
+
+        private static Connection tracked(Connection target) {
+            long[] held = HELD_NANOS.get();
+            if (held == null) {
+                return target;
+            }
+            long start = System.nanoTime();
+            boolean[] closed = new boolean[1];
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("close") && !closed[0]) {
+                            closed[0] = true;
+                            held[0] += System.nanoTime() - start;
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
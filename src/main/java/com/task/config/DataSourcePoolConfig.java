@@ -0,0 +1,108 @@
+package com.task.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+
+// Pool sizing from the database limits (app.datasource.pool.*, on in the production profile), the pool
+// saturation gauge and the per-request connection hold time. The rest of the pool and driver tuning is plain configuration, see application-production.properties.
+@Configuration
+public class DataSourcePoolConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(DataSourcePoolConfig.class);
+
+    static final String SATURATION_METRIC = "app.datasource.pool.saturation";
+
+    // Static and bound by hand: a post-processor is created before @ConfigurationProperties binding is available
+    @Bean
+    static BeanPostProcessor poolSizingPostProcessor(Environment environment) {
+        Binder binder = Binder.get(environment);
+        PoolSizingProperties properties = binder.bindOrCreate("app.datasource.pool", PoolSizingProperties.class);
+        boolean explicitSize = binder.bind("spring.datasource.hikari.maximum-pool-size", Integer.class).isBound();
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource ds) || !properties.enabled()) {
+                    return bean;
+                }
+                for (HikariDataSource dataSource : pools(ds)) {
+                    if (explicitSize) {
+                        log.info("poolSizing >> spring.datasource.hikari.maximum-pool-size is set, keeping {} for {}",
+                                dataSource.getMaximumPoolSize(), dataSource.getPoolName());
+                    } else {
+                        // a fixed-size pool: no connections opened under load, none closed when it drops
+                        int size = properties.maximumPoolSize();
+                        dataSource.setMaximumPoolSize(size);
+                        dataSource.setMinimumIdle(size);
+                        log.info("poolSizing >> maximum pool size of {} : {} ({} database cores, {} max connections, {} instances)",
+                                dataSource.getPoolName(), size, properties.databaseCores(), properties.databaseMaxConnections(),
+                                properties.instances());
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Connection hold time per request, see ConnectionHoldInterceptor
+    @Bean
+    static BeanPostProcessor connectionHoldPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource ? ConnectionHoldTracker.track(dataSource) : bean;
+            }
+        };
+    }
+
+    // (active + pending) / maximum pool size: up to 1 the pool has room, above 1 requests are queueing for a
+    // connection. The raw hikaricp.connections.* meters (active, pending, acquire, timeout) stay as they are, and are
+    // added here for the replica pools that the auto-configuration does not see behind the routing DataSource.
+    @Bean
+    MeterBinder poolSaturationMetrics(DataSource dataSource) {
+        return registry -> {
+            for (HikariDataSource hikari : pools(dataSource)) {
+                if (hikari.getMetricRegistry() == null && hikari.getMetricsTrackerFactory() == null) {
+                    hikari.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+                }
+                Gauge.builder(SATURATION_METRIC, hikari, DataSourcePoolConfig::saturation)
+                        .tag("pool", String.valueOf(hikari.getPoolName()))
+                        .description("Connections in use or waited for, relative to the maximum pool size")
+                        .register(registry);
+            }
+        };
+    }
+
+    static double saturation(HikariDataSource dataSource) {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return 0;   // not started yet
+        }
+        return (pool.getActiveConnections() + pool.getThreadsAwaitingConnection()) / (double) dataSource.getMaximumPoolSize();
+    }
+
+    // Every pool of the routing DataSource, or the single pool
+    private static List<HikariDataSource> pools(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(ReadWriteRoutingDataSource.class)) {
+                return dataSource.unwrap(ReadWriteRoutingDataSource.class).pools();
+            }
+            return dataSource.isWrapperFor(HikariDataSource.class) ? List.of(dataSource.unwrap(HikariDataSource.class)) : List.of();
+        } catch (SQLException e) {
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.task.config;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Decides once per request whether its debug logs are kept, using the rate configured for the endpoint.
+// The decision is carried in the MDC so every log line of the request (service included) follows it. The key is
+// set or removed at every dispatch and cleared when the container thread is released, pooled threads never carry the
+// decision of a previous request.
+public class LogSamplingInterceptor implements AsyncHandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(LogSamplingInterceptor.class);
+
+    static final String MDC_KEY = "sampled";
+    static final String SAMPLED = "true";
+
+    private static final String START_ATTRIBUTE = LogSamplingInterceptor.class.getName() + ".start";
+
+    private final LogSamplingProperties properties;
+
+    public LogSamplingInterceptor(LogSamplingProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        boolean sampled;
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            // the async dispatch of a streamed response keeps the decision taken for its request
+            sampled = request.getAttribute(START_ATTRIBUTE) != null;
+        } else {
+            sampled = handler instanceof HandlerMethod handlerMethod && isSampled(handlerMethod);
+            if (sampled) {
+                request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+            }
+        }
+        if (sampled) {
+            MDC.put(MDC_KEY, SAMPLED);
+        } else {
+            MDC.remove(MDC_KEY);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start != null) {
+            log.debug("{} {} >> status : {} in {} ms", request.getMethod(), request.getRequestURI(), response.getStatus(),
+                    (System.nanoTime() - (long) start) / 1_000_000);
+        }
+        MDC.remove(MDC_KEY);
+    }
+
+    // A streamed response (the export) hands the request over to another thread, afterCompletion only runs after its
+    // async dispatch
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        MDC.remove(MDC_KEY);
+    }
+
+    private boolean isSampled(HandlerMethod handlerMethod) {
+        double rate = properties.rateFor(handlerMethod.getMethod().getName());
+        return rate > 0 && (rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate);
+    }
+}
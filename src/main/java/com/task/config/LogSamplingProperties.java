@@ -0,0 +1,18 @@
+package com.task.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+
+// Per-endpoint debug log sampling rates, keyed by controller method name (0.0 = never, 1.0 = every request)
+@ConfigurationProperties(prefix = "app.logging.sampling")
+public record LogSamplingProperties(double defaultRate, Map<String, Double> rates) {
+
+    public LogSamplingProperties {
+        rates = rates == null ? Map.of() : Map.copyOf(rates);
+    }
+
+    public double rateFor(String endpoint) {
+        return rates.getOrDefault(endpoint, defaultRate);
+    }
+}
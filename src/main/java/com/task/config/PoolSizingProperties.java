@@ -0,0 +1,27 @@
+package com.task.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Sizing of the HikariCP pool from the database server instead of a fixed number (see DataSourcePoolConfig).
+// databaseCores falls back to the cores of this machine, databaseMaxConnections to the MySQL default of 151.
+@ConfigurationProperties(prefix = "app.datasource.pool")
+public record PoolSizingProperties(boolean enabled, int databaseCores, int effectiveSpindles, int databaseMaxConnections,
+                                   int instances, int reservedConnections) {
+
+    public PoolSizingProperties {
+        databaseCores = databaseCores <= 0 ? Runtime.getRuntime().availableProcessors() : databaseCores;
+        effectiveSpindles = Math.max(effectiveSpindles, 0);
+        databaseMaxConnections = databaseMaxConnections <= 0 ? 151 : databaseMaxConnections;
+        instances = Math.max(instances, 1);
+        reservedConnections = Math.max(reservedConnections, 0);
+    }
+
+    // (cores * 2) + effective spindles keeps every database core busy while others wait on I/O, more connections
+    // only queue inside MySQL. Capped by this instance's share of max_connections left after the reserved ones
+    // (admin sessions, migrations, replication).
+    public int maximumPoolSize() {
+        int byCores = databaseCores * 2 + effectiveSpindles;
+        int byConnectionLimit = (databaseMaxConnections - reservedConnections) / instances;
+        return Math.max(1, Math.min(byCores, byConnectionLimit));
+    }
+}
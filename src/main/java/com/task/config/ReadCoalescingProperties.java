@@ -0,0 +1,16 @@
+package com.task.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Coalescing of concurrent GETs of the same product or category (see SingleFlight). The response of a load is
+// reused for ttl after it completes, so a write shows up in the single GETs at most ttl later.
+@ConfigurationProperties(prefix = "app.read-coalescing")
+public record ReadCoalescingProperties(Duration ttl, long maximumSize) {
+
+    public ReadCoalescingProperties {
+        ttl = ttl == null || ttl.isNegative() ? Duration.ZERO : ttl;
+        maximumSize = maximumSize <= 0 ? 10_000 : maximumSize;
+    }
+}
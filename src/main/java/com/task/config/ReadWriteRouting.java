@@ -0,0 +1,110 @@
+package com.task.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+
+// Read-your-writes for the replica routing: a write transaction sets a cookie holding the end of the sticky window,
+// and while it lasts the client's read-only transactions run on the primary. Carried per request thread, requests
+// without this interceptor (background jobs) are never sticky. The state is dropped whenever the request leaves its
+// thread, and the tasks of the application executor start without any (see detached).
+public class ReadWriteRouting implements AsyncHandlerInterceptor {
+
+    static final String COOKIE_NAME = "rw-primary-until";
+
+    private static final ThreadLocal<State> STATE = new ThreadLocal<>();
+
+    private final Duration stickyWindow;
+
+    public ReadWriteRouting(Duration stickyWindow) {
+        this.stickyWindow = stickyWindow;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        STATE.set(new State(response, primaryUntil(request) > System.currentTimeMillis(), stickyWindow));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        STATE.remove();
+    }
+
+    // A streamed response (the export) returns the container thread before afterCompletion, which only runs after the
+    // async dispatch. That dispatch takes the state again in preHandle.
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        STATE.remove();
+    }
+
+    // Wraps a task of the application executor (the body of a streamed response, async jobs): it runs without the
+    // state of whatever ran on the pooled thread before, and leaves none behind
+    static Runnable detached(Runnable task) {
+        return () -> {
+            STATE.remove();
+            try {
+                task.run();
+            } finally {
+                STATE.remove();
+            }
+        };
+    }
+
+    public static boolean isSticky() {
+        State state = STATE.get();
+        return state != null && state.sticky;
+    }
+
+    // Called when a write transaction takes its connection: the rest of the request and the client's reads within
+    // the window go to the primary. The cookie is only added while the response can still take headers.
+    static void wrote() {
+        State state = STATE.get();
+        if (state == null || state.cookieSet) {
+            return;
+        }
+        state.sticky = true;
+        state.cookieSet = true;
+        if (!state.response.isCommitted()) {
+            Cookie cookie = new Cookie(COOKIE_NAME, String.valueOf(System.currentTimeMillis() + state.window.toMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, state.window.toSeconds()));
+            state.response.addCookie(cookie);
+        }
+    }
+
+    private static long primaryUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static final class State {
+
+        private final HttpServletResponse response;
+        private final Duration window;
+        private boolean sticky;
+        private boolean cookieSet;
+
+        private State(HttpServletResponse response, boolean sticky, Duration window) {
+            this.response = response;
+            this.sticky = sticky;
+            this.window = window;
+        }
+    }
+}
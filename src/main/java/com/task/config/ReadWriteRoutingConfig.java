@@ -0,0 +1,62 @@
+package com.task.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+// With app.datasource.routing.enabled the application DataSource routes between the primary (spring.datasource.*)
+// and the replica pools instead of being the single auto-configured pool. The pools are not beans of their own, JPA,
+// Flyway and the metrics see the one routing DataSource (DataSourcePoolConfig sizes and meters every pool).
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.routing", name = "enabled", havingValue = "true")
+public class ReadWriteRoutingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingConfig.class);
+
+    @Bean
+    DataSource dataSource(DataSourceProperties dataSourceProperties, ReadWriteRoutingProperties properties,
+                          Environment environment) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        if (primary.getPoolName() == null) {
+            primary.setPoolName(ReadWriteRoutingDataSource.PRIMARY);
+        }
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (ReadWriteRoutingProperties.Replica replica : properties.replicas()) {
+            HikariDataSource pool = new HikariDataSource();
+            primary.copyStateTo(pool);
+            pool.setJdbcUrl(replica.url());
+            pool.setUsername(replica.username());
+            pool.setPassword(replica.password());
+            pool.setPoolName(primary.getPoolName() + "-replica-" + replicas.size());
+            replicas.add(pool);
+        }
+        log.info("dataSource >> read-only transactions routed to {} replica(s), sticky window {}", replicas.size(),
+                properties.stickyWindow());
+
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replicas);
+        routing.afterPropertiesSet();
+        // the pool is picked at the first statement, when the transaction's read-only flag is set
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    // Picked up by the auto-configured applicationTaskExecutor, which also runs the MVC async work
+    @Bean
+    TaskDecorator readWriteRoutingTaskDecorator() {
+        return ReadWriteRouting::detached;
+    }
+}
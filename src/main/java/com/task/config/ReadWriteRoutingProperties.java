@@ -0,0 +1,21 @@
+package com.task.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+// Read replicas (see ReadWriteRoutingConfig), off by default. A replica pool takes the spring.datasource.hikari
+// settings of the primary with its own URL and credentials. After a write, the client reads from the primary for
+// stickyWindow, long enough for the replicas to have applied it.
+@ConfigurationProperties(prefix = "app.datasource.routing")
+public record ReadWriteRoutingProperties(boolean enabled, List<Replica> replicas, Duration stickyWindow) {
+
+    public ReadWriteRoutingProperties {
+        replicas = replicas == null ? List.of() : List.copyOf(replicas);
+        stickyWindow = stickyWindow == null ? Duration.ofSeconds(5) : stickyWindow;
+    }
+
+    public record Replica(String url, String username, String password) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.task.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+// Lets debug and trace events of the application loggers through only for requests marked as sampled by
+// LogSamplingInterceptor, other levels and third party loggers are left to the configured levels
+public class SampledLogTurboFilter extends TurboFilter {
+
+    private static final String APP_LOGGER_PREFIX = "com.task";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level == null || level.isGreaterOrEqual(Level.INFO) || !logger.getName().startsWith(APP_LOGGER_PREFIX)) {
+            return FilterReply.NEUTRAL;
+        }
+        return LogSamplingInterceptor.SAMPLED.equals(MDC.get(LogSamplingInterceptor.MDC_KEY)) ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+}
@@ -0,0 +1,10 @@
+package com.task.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Background jobs run on the Boot-configured scheduler (spring.task.scheduling.*), see CategoryStatsReconciler
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
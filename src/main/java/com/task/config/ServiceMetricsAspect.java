@@ -0,0 +1,49 @@
+package com.task.config;
+
+import com.task.dto.ApiResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+// Times every service method that builds an API response (app.service.calls), tagged with the class, the method
+// and the outcome taken from the response body: "success", or the error code (400, 404, 500, ...)
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+    private static final String METRIC_NAME = "app.service.calls";
+
+    private final MeterRegistry meterRegistry;
+
+    public ServiceMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public org.springframework.http.ResponseEntity com.task.services..*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "500";
+        try {
+            Object result = joinPoint.proceed();
+            outcome = outcomeOf((ResponseEntity<?>) result);
+            return result;
+        } finally {
+            sample.stop(Timer.builder(METRIC_NAME)
+                    .tag("class", joinPoint.getSignature().getDeclaringType().getSimpleName())
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private static String outcomeOf(ResponseEntity<?> response) {
+        if (response.getBody() instanceof ApiResponse<?> body) {
+            return body.success() ? "success" : String.valueOf(body.error().code());
+        }
+        return response.getStatusCode().is2xxSuccessful() ? "success" : String.valueOf(response.getStatusCode().value());
+    }
+}
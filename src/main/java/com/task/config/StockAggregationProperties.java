@@ -0,0 +1,12 @@
+package com.task.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Combining of concurrent stock changes (see StockAggregator), off by default
+@ConfigurationProperties(prefix = "app.stock.aggregation")
+public record StockAggregationProperties(boolean enabled, int stripes) {
+
+    public StockAggregationProperties {
+        stripes = stripes <= 0 ? 64 : stripes;
+    }
+}
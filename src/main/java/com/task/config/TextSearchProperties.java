@@ -0,0 +1,27 @@
+package com.task.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Text index of the product names and descriptions (see ProductTextIndex). Without an index path the index is
+// held on the heap, which is only meant for tests and small catalogs. Writes become visible to the searches within
+// refreshInterval.
+@ConfigurationProperties(prefix = "app.search.text")
+public record TextSearchProperties(String indexPath, Rebuild rebuild, int rebuildThreads, int rebuildBatchSize,
+                                   Duration refreshInterval) {
+
+    public TextSearchProperties {
+        rebuild = rebuild == null ? Rebuild.IF_NEEDED : rebuild;
+        rebuildThreads = rebuildThreads <= 0 ? Runtime.getRuntime().availableProcessors() : rebuildThreads;
+        rebuildBatchSize = rebuildBatchSize <= 0 ? 10_000 : rebuildBatchSize;
+        refreshInterval = refreshInterval == null || refreshInterval.isNegative() || refreshInterval.isZero()
+                ? Duration.ofSeconds(1) : refreshInterval;
+    }
+
+    // When the index is rebuilt from the table at startup. IF_NEEDED: the index is new, was written with another
+    // schema, or the previous run did not shut down cleanly (its last writes may be missing).
+    public enum Rebuild {
+        ALWAYS, IF_NEEDED, NEVER
+    }
+}
@@ -0,0 +1,52 @@
+package com.task.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties({LogSamplingProperties.class, StockAggregationProperties.class, TextSearchProperties.class,
+        ReadWriteRoutingProperties.class, ReadCoalescingProperties.class, AdmissionControlProperties.class})
+public class WebConfig implements WebMvcConfigurer {
+
+    private final LogSamplingProperties logSamplingProperties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ReadWriteRoutingProperties readWriteRoutingProperties;
+    private final AdmissionControlProperties admissionControlProperties;
+
+    public WebConfig(LogSamplingProperties logSamplingProperties, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                     ReadWriteRoutingProperties readWriteRoutingProperties,
+                     AdmissionControlProperties admissionControlProperties) {
+        this.logSamplingProperties = logSamplingProperties;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.readWriteRoutingProperties = readWriteRoutingProperties;
+        this.admissionControlProperties = admissionControlProperties;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // first, a rejected request costs no more than this check
+        if (admissionControlProperties.enabled()) {
+            registry.addInterceptor(new AdmissionControlInterceptor(admissionControlProperties, objectMapper, meterRegistry))
+                    .addPathPatterns("/api/products/**", "/api/categories/**");
+        }
+        registry.addInterceptor(new LogSamplingInterceptor(logSamplingProperties));
+        registry.addInterceptor(new ConnectionHoldInterceptor(meterRegistry));
+        if (readWriteRoutingProperties.enabled()) {
+            registry.addInterceptor(new ReadWriteRouting(readWriteRoutingProperties.stickyWindow()));
+        }
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new ApiResponseMessageConverter(objectMapper));
+    }
+}
@@ -3,8 +3,10 @@ package com.task.controllers;
 import com.task.entities.Category;
 import com.task.services.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api")
@@ -19,10 +21,41 @@ public class CategoryController {
 
 
     @GetMapping("/categories")
-    public ResponseEntity<?> getAllCategories(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "5") int size) {
+    public ResponseEntity<?> getAllCategories(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "5") int size,
+                                              @RequestParam(required = false) String after, @RequestParam(required = false) String fields,
+                                              WebRequest webRequest) {
+        // only the listed columns are selected and serialized when fields is supplied
+        if (fields != null) {
+            if (categoryService.isCategoryFieldsPageNotModified(page, size, after, fields, webRequest)) {
+                return null;    // 304 already prepared by checkNotModified
+            }
+            return categoryService.getCategoryFields(page, size, after, fields);
+        }
+        // keyset mode when a cursor is supplied ('after=' with an empty value starts from the first row)
+        if (after != null) {
+            if (categoryService.isCategoryPageAfterNotModified(after, size, webRequest)) {
+                return null;    // 304 already prepared by checkNotModified
+            }
+            return categoryService.getCategoriesAfter(after, size);
+        }
+        if (categoryService.isCategoryPageNotModified(page, size, webRequest)) {
+            return null;
+        }
         return categoryService.getAllCategories(page, size);
     }
 
+    // e.g. /categories?ids=3,1,8, up to 100 categories in one query, in the order asked for
+    @GetMapping(value = "/categories", params = "ids")
+    public ResponseEntity<?> getCategoriesByIds(@RequestParam String ids) {
+        return categoryService.getCategoriesByIds(ids);
+    }
+
+    // Per-category product count, total quantity and stock value, for the dashboards
+    @GetMapping("/categories/aggregates")
+    public ResponseEntity<?> getCategoryAggregates() {
+        return categoryService.getCategoryAggregates();
+    }
+
     @PostMapping("/categories")
     public ResponseEntity<?> addCategory(@RequestBody Category category) {
         return categoryService.addCategory(category);
@@ -30,19 +63,32 @@ public class CategoryController {
 
 
     @GetMapping("/categories/{id}")
-    public ResponseEntity<?> getCategory(@PathVariable("id") Long id) {
+    public ResponseEntity<?> getCategory(@PathVariable("id") Long id, WebRequest webRequest) {
+        if (categoryService.isCategoryNotModified(id, webRequest)) {
+            return null;    // 304 already prepared by checkNotModified
+        }
         return categoryService.getCategory(id);
     }
 
 
     @DeleteMapping("/categories/{id}")
-    public ResponseEntity<?> deleteCategory(@PathVariable("id") Long id) {
+    public ResponseEntity<?> deleteCategory(@PathVariable("id") Long id, @RequestParam(defaultValue = "false") boolean async) {
+        // async=true for huge categories: 202 with a job to poll instead of holding the request open
+        if (async) {
+            return categoryService.deleteCategoryAsync(id);
+        }
         return categoryService.deleteCategory(id);
     }
 
+    @GetMapping("/categories/delete-jobs/{jobId}")
+    public ResponseEntity<?> getDeletionJob(@PathVariable("jobId") String jobId) {
+        return categoryService.getDeletionJob(jobId);
+    }
+
 
     @PutMapping("/categories/{id}")
-    public ResponseEntity<?> updateCategory(@PathVariable("id") Long id, @RequestBody Category category) {
-        return categoryService.updateCategory(id, category);
+    public ResponseEntity<?> updateCategory(@PathVariable("id") Long id, @RequestBody Category category,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return categoryService.updateCategory(id, category, ifMatch);
     }
 }
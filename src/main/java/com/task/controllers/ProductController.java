@@ -1,10 +1,21 @@
 package com.task.controllers;
 
+import com.task.dto.ProductPatch;
+import com.task.dto.ProductSearch;
+import com.task.dto.StockChange;
 import com.task.entities.Product;
 import com.task.services.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api")
@@ -18,18 +29,89 @@ public class ProductController {
     }
 
     @GetMapping("/products")
-    public ResponseEntity<?> getAllProducts(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "5") int size) {
-        System.out.println("ProductController >> getAllProducts..");
+    public ResponseEntity<?> getAllProducts(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "5") int size,
+                                            @RequestParam(required = false) String after, @RequestParam(required = false) String fields,
+                                            WebRequest webRequest) {
+        // only the listed columns are selected and serialized when fields is supplied
+        if (fields != null) {
+            if (productService.isProductFieldsPageNotModified(page, size, after, fields, webRequest)) {
+                return null;    // 304 already prepared by checkNotModified
+            }
+            return productService.getProductFields(page, size, after, fields);
+        }
+        // keyset mode when a cursor is supplied ('after=' with an empty value starts from the first row)
+        if (after != null) {
+            if (productService.isProductPageAfterNotModified(after, size, webRequest)) {
+                return null;    // 304 already prepared by checkNotModified
+            }
+            return productService.getProductsAfter(after, size);
+        }
+        if (productService.isProductPageNotModified(page, size, webRequest)) {
+            return null;
+        }
         return productService.getAllProducts(page, size);
     }
 
+    // e.g. /products?ids=12,7,31, up to 100 products in one query, in the order asked for
+    @GetMapping(value = "/products", params = "ids")
+    public ResponseEntity<?> getProductsByIds(@RequestParam String ids) {
+        return productService.getProductsByIds(ids);
+    }
+
+    // e.g. /products/search?categoryId=1&minPrice=100&maxPrice=500&inStock=true&sort=price,desc
+    @GetMapping("/products/search")
+    public ResponseEntity<?> searchProducts(ProductSearch search, @RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "5") int size) {
+        return productService.searchProducts(search, page, size);
+    }
+
+    // e.g. /products/text-search?q=wireles%20headph&limit=10, ranked matches on the names and descriptions
+    @GetMapping("/products/text-search")
+    public ResponseEntity<?> searchProductsText(@RequestParam(required = false) String q,
+                                                @RequestParam(defaultValue = "10") int limit) {
+        return productService.searchProductsText(q, limit);
+    }
+
     @PostMapping("/products")
     public ResponseEntity<?> addProduct(@RequestBody Product product) {
         return productService.addProduct(product);
     }
 
+    @PostMapping(value = "/products/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> addProducts(@RequestBody List<Product> products) {
+        return productService.addProducts(products);
+    }
+
+    @PostMapping(value = "/products/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<?> addProductsNdjson(InputStream body) {
+        return productService.addProductsNdjson(body);
+    }
+
+    // Streams the full catalog as NDJSON, optionally gzip encoded
+    @GetMapping("/products/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "false") boolean gzip) {
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024);
+                productService.exportProducts(gzipOut);
+                gzipOut.finish();
+            } else {
+                productService.exportProducts(out);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
     @GetMapping("/products/{id}")
-    public ResponseEntity<?> getProduct(@PathVariable("id") Long id) {
+    public ResponseEntity<?> getProduct(@PathVariable("id") Long id, WebRequest webRequest) {
+        if (productService.isProductNotModified(id, webRequest)) {
+            return null;    // 304 already prepared by checkNotModified
+        }
         return productService.getProduct(id);
     }
 
@@ -41,7 +123,26 @@ public class ProductController {
 
 
     @PutMapping("/products/{id}")
-    public ResponseEntity<?> updateProduct(@PathVariable("id") Long id, @RequestBody Product product) {
-        return productService.updateProduct(id, product);
+    public ResponseEntity<?> updateProduct(@PathVariable("id") Long id, @RequestBody Product product,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return productService.updateProduct(id, product, ifMatch);
+    }
+
+    // Atomic stock adjustments for the order service, e.g. {"quantity": 2}
+    @PostMapping("/products/{id}/stock/reserve")
+    public ResponseEntity<?> reserveStock(@PathVariable("id") Long id, @RequestBody StockChange change) {
+        return productService.reserveStock(id, change);
+    }
+
+    @PostMapping("/products/{id}/stock/release")
+    public ResponseEntity<?> releaseStock(@PathVariable("id") Long id, @RequestBody StockChange change) {
+        return productService.releaseStock(id, change);
+    }
+
+    // Partial update in a single conditional UPDATE, If-Match is required
+    @PatchMapping("/products/{id}")
+    public ResponseEntity<?> patchProduct(@PathVariable("id") Long id, @RequestBody ProductPatch patch,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return productService.patchProduct(id, patch, ifMatch);
     }
 }
@@ -0,0 +1,21 @@
+package com.task.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Envelope of every API response: {success, message, data} on success, {success, error} on failure.
+// Immutable, so the fixed responses (errors with a constant message, data-less successes) are shared constants.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ApiResponse<T>(boolean success, String message, T data, ErrorBody error) {
+
+    public static <T> ApiResponse<T> ok(String message, T data) {
+        return new ApiResponse<>(true, message, data, null);
+    }
+
+    public static ApiResponse<Void> ok(String message) {
+        return new ApiResponse<>(true, message, null, null);
+    }
+
+    public static ApiResponse<Void> error(int code, String details) {
+        return new ApiResponse<>(false, null, null, new ErrorBody(code, details));
+    }
+}
@@ -0,0 +1,16 @@
+package com.task.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Outcome of one item of a batch insert, in input order: the new productId or the reason it was rejected
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchItemResult(int index, boolean success, Long productId, ErrorBody error) {
+
+    public static BatchItemResult created(int index, long productId) {
+        return new BatchItemResult(index, true, productId, null);
+    }
+
+    public static BatchItemResult rejected(int index, String details) {
+        return new BatchItemResult(index, false, null, new ErrorBody(400, details));
+    }
+}
@@ -0,0 +1,5 @@
+package com.task.dto;
+
+// Counters of one second-level cache region, read from its JCache statistics MXBean
+public record CacheRegionStats(long hits, long misses, long puts, long removals, long evictions, float hitPercentage) {
+}
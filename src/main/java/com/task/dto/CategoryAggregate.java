@@ -0,0 +1,5 @@
+package com.task.dto;
+
+// Totals of the products of a category, stockValue is the sum of price * quantity
+public record CategoryAggregate(long categoryId, String categoryName, long productCount, long totalQuantity, double stockValue) {
+}
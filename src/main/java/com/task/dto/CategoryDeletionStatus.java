@@ -0,0 +1,5 @@
+package com.task.dto;
+
+// Progress of an asynchronous category delete, returned by GET /api/categories/delete-jobs/{jobId}
+public record CategoryDeletionStatus(String jobId, long categoryId, String status, long productsDeleted, String error) {
+}
@@ -0,0 +1,5 @@
+package com.task.dto;
+
+// Totals of the products of a category as computed from the products table, see CategoryStatsReconciler
+public record CategoryTotals(long productCount, long totalQuantity, double stockValue) {
+}
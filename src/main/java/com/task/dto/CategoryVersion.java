@@ -0,0 +1,7 @@
+package com.task.dto;
+
+import java.time.Instant;
+
+// Version of a category, enough to answer a conditional GET without loading the entity
+public record CategoryVersion(long categoryId, long version, Instant updatedAt) {
+}
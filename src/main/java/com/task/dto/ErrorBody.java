@@ -0,0 +1,5 @@
+package com.task.dto;
+
+// Error part of a failed response, code mirrors the HTTP status
+public record ErrorBody(int code, String details) {
+}
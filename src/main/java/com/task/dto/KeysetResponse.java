@@ -0,0 +1,11 @@
+package com.task.dto;
+
+import java.util.List;
+
+// Keyset page, nextCursor is written as null on the last page
+public record KeysetResponse<T>(boolean success, String message, List<T> data, String nextCursor) {
+
+    public static <T> KeysetResponse<T> of(List<T> data, String nextCursor) {
+        return new KeysetResponse<>(true, "Request successful", data, nextCursor);
+    }
+}
@@ -0,0 +1,16 @@
+package com.task.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// One item of a multi-get, in request order: the entity, or a 404 error when the id does not exist
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record MultiGetItem<T>(long id, boolean success, T data, ErrorBody error) {
+
+    public static <T> MultiGetItem<T> found(long id, T data) {
+        return new MultiGetItem<>(id, true, data, null);
+    }
+
+    public static <T> MultiGetItem<T> missing(long id, String details) {
+        return new MultiGetItem<>(id, false, null, new ErrorBody(404, details));
+    }
+}
@@ -0,0 +1,5 @@
+package com.task.dto;
+
+// The columns of a product held by the text index
+public record ProductIndexEntry(long productId, String productName, String description, long categoryId) {
+}
@@ -0,0 +1,5 @@
+package com.task.dto;
+
+// Body of PATCH /api/products/{id}, fields left null keep their current value
+public record ProductPatch(String productName, Double price, Integer quantity, String description) {
+}
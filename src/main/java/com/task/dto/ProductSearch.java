@@ -0,0 +1,6 @@
+package com.task.dto;
+
+// Query parameters of GET /api/products/search, every filter is optional. sort is "field" or "field,asc|desc".
+public record ProductSearch(Long categoryId, Double minPrice, Double maxPrice, Boolean inStock, String namePrefix,
+                            String sort) {
+}
@@ -0,0 +1,7 @@
+package com.task.dto;
+
+import java.time.Instant;
+
+// Versions a product response depends on, enough to answer a conditional GET without loading the entities
+public record ProductVersion(long productId, long version, Instant updatedAt, long categoryVersion, Instant categoryUpdatedAt) {
+}
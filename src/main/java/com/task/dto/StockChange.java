@@ -0,0 +1,5 @@
+package com.task.dto;
+
+// Body of the stock reserve / release endpoints
+public record StockChange(int quantity) {
+}
@@ -0,0 +1,5 @@
+package com.task.dto;
+
+// One ranked match of a text search, answered from the index alone (GET /api/products/{id} has the full product)
+public record TextSearchHit(long productId, String productName, long categoryId, float score) {
+}
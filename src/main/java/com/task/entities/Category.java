@@ -1,13 +1,22 @@
 package com.task.entities;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
-import java.time.LocalDate;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Set;
 
 @Entity
-@Table(name = "categories")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "categories", uniqueConstraints = @UniqueConstraint(name = "uk_categories_category_name", columnNames = "category_name"))
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})   // Category can be a lazy proxy when referenced from a Product
 public class Category {
 
     @Id
@@ -20,27 +29,37 @@ public class Category {
     @Column(name = "description")
     private String description;
 
+    // Optimistic locking, also the version part of the ETag
+    @Version
+    @Column(name = "version", nullable = false)
+    @JsonIgnore
+    private long version;
+
+    // Plain DATETIME(6) columns holding UTC (hibernate.jdbc.time_zone), not the TIMESTAMP WITH TIME ZONE an Instant maps to
     @Column(name = "created_at", nullable = false, updatable = false)
+    @JdbcTypeCode(SqlTypes.TIMESTAMP)
     @JsonIgnore
-    private LocalDate createdAt;
+    private Instant createdAt;
 
-    @Column(name = "updated_at")
+    @Column(name = "updated_at", nullable = false)
+    @JdbcTypeCode(SqlTypes.TIMESTAMP)
     @JsonIgnore
-    private LocalDate updatedAt;
+    private Instant updatedAt;
 
     @OneToMany(mappedBy = "category", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
     private Set<Product> products;
 
+    // Microsecond precision like the DATETIME(6) columns, so the ETag computed right after a write matches later reads
     @PrePersist
     public void prePersist() {
-        this.createdAt = LocalDate.now();
-        this.updatedAt = LocalDate.now();
+        this.createdAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        this.updatedAt = this.createdAt;
     }
 
     @PreUpdate
     public void preUpdate() {
-        this.updatedAt = LocalDate.now();
+        this.updatedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
     }
 
 
@@ -72,19 +91,27 @@ public class Category {
         this.description = description;
     }
 
-    public LocalDate getCreatedAt() {
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public Instant getCreatedAt() {
         return createdAt;
     }
 
-    public void setCreatedAt(LocalDate createdAt) {
+    public void setCreatedAt(Instant createdAt) {
         this.createdAt = createdAt;
     }
 
-    public LocalDate getUpdatedAt() {
+    public Instant getUpdatedAt() {
         return updatedAt;
     }
 
-    public void setUpdatedAt(LocalDate updatedAt) {
+    public void setUpdatedAt(Instant updatedAt) {
         this.updatedAt = updatedAt;
     }
 
@@ -98,8 +125,8 @@ public class Category {
 
     @Override
     public String toString() {
-        return String.format("Category >> {categoryId=%d, categoryName='%s', description='%s', createdAt=%s, updatedAt=%s}%n",
-                categoryId, categoryName, description, createdAt, updatedAt);
+        return "Category >> {categoryId=" + categoryId + ", categoryName='" + categoryName + "', description='"
+                + description + "', createdAt=" + createdAt + ", updatedAt=" + updatedAt + "}";
     }
 
 }
@@ -0,0 +1,64 @@
+package com.task.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// Running totals of the products of a category. Written with relative bulk UPDATEs in the transactions of the
+// product writes (see CategoryStatsRepo), only the reconciliation loads and sets them. Not cached: every product
+// write changes a row.
+@Entity
+@Table(name = "category_stats")
+public class CategoryStats {
+
+    // Same value as the category id, no association so that the stats never have to be loaded with a category
+    @Id
+    @Column(name = "category_id")
+    private long categoryId;
+
+    @Column(name = "product_count", nullable = false)
+    private long productCount;
+
+    @Column(name = "total_quantity", nullable = false)
+    private long totalQuantity;
+
+    // Sum of price * quantity
+    @Column(name = "stock_value", nullable = false)
+    private double stockValue;
+
+    public CategoryStats() {
+    }
+
+    public CategoryStats(long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public long getCategoryId() {
+        return categoryId;
+    }
+
+    public long getProductCount() {
+        return productCount;
+    }
+
+    public void setProductCount(long productCount) {
+        this.productCount = productCount;
+    }
+
+    public long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public void setTotalQuantity(long totalQuantity) {
+        this.totalQuantity = totalQuantity;
+    }
+
+    public double getStockValue() {
+        return stockValue;
+    }
+
+    public void setStockValue(double stockValue) {
+        this.stockValue = stockValue;
+    }
+}
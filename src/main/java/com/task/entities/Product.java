@@ -2,22 +2,38 @@ package com.task.entities;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
-import java.time.LocalDate;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 
 @Entity
-@Table(name = "products")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "products",
+		uniqueConstraints = @UniqueConstraint(name = "uk_products_product_name", columnNames = "product_name"),
+		indexes = {   // search filters, see V5__product_search_indexes.sql
+				@Index(name = "idx_products_category_price", columnList = "category_id, price"),
+				@Index(name = "idx_products_category_name", columnList = "category_id, product_name"),
+				@Index(name = "idx_products_price", columnList = "price")
+		})
 public class Product {
 
+	// Pooled sequence (a table on MySQL) instead of IDENTITY, so that inserts can be sent as JDBC batches
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+	@SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
 	@Column(name = "product_id")
 	private long productId;
 
 	@Column(name = "product_name", nullable = false, length = 255)
 	private String productName;
 
-	@ManyToOne(fetch = FetchType.EAGER)
+	// Lazy so that lookups which don't need the category skip the join, read paths fetch it through entity graphs in ProductRepo
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "category_id", nullable = false)
 	private Category category;
 
@@ -30,23 +46,33 @@ public class Product {
 	@Column(name = "description")
 	private String description;
 
+	// Optimistic locking, also the version part of the ETag
+	@Version
+	@Column(name = "version", nullable = false)
+	@JsonIgnore
+	private long version;
+
+	// Plain DATETIME(6) columns holding UTC (hibernate.jdbc.time_zone), not the TIMESTAMP WITH TIME ZONE an Instant maps to
 	@Column(name = "created_at", nullable = false, updatable = false)
+	@JdbcTypeCode(SqlTypes.TIMESTAMP)
 	@JsonIgnore
-	private LocalDate createdAt;
+	private Instant createdAt;
 
-	@Column(name = "updated_at")
+	@Column(name = "updated_at", nullable = false)
+	@JdbcTypeCode(SqlTypes.TIMESTAMP)
 	@JsonIgnore
-	private LocalDate updatedAt;
+	private Instant updatedAt;
 
+	// Microsecond precision like the DATETIME(6) columns, so the ETag computed right after a write matches later reads
 	@PrePersist
 	public void prePersist() {
-		this.createdAt = LocalDate.now();
-		this.updatedAt = LocalDate.now();
+		this.createdAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+		this.updatedAt = this.createdAt;
 	}
 
 	@PreUpdate
 	public void preUpdate() {
-		this.updatedAt = LocalDate.now();
+		this.updatedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
 	}
 	
 	public Product() {
@@ -101,26 +127,37 @@ public class Product {
 		this.description = description;
 	}
 
-	public LocalDate getCreatedAt() {
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+	public Instant getCreatedAt() {
 		return createdAt;
 	}
 
-	public void setCreatedAt(LocalDate createdAt) {
+	public void setCreatedAt(Instant createdAt) {
 		this.createdAt = createdAt;
 	}
 
-	public LocalDate getUpdatedAt() {
+	public Instant getUpdatedAt() {
 		return updatedAt;
 	}
 
-	public void setUpdatedAt(LocalDate updatedAt) {
+	public void setUpdatedAt(Instant updatedAt) {
 		this.updatedAt = updatedAt;
 	}
 
 	@Override
 	public String toString() {
-		return String.format("Product >> {productId=%d, productName='%s', category='%s', price=%.2f, quantity=%d, description='%s', createdAt=%s, updatedAt=%s}%n",
-				productId, productName, category.getCategoryName(), price, quantity, description, createdAt, updatedAt);
+		// only the category id is read so that a lazy category is never initialized just to be printed
+		return "Product >> {productId=" + productId + ", productName='" + productName
+				+ "', categoryId=" + (category == null ? null : category.getCategoryId()) + ", price=" + price
+				+ ", quantity=" + quantity + ", description='" + description + "', createdAt=" + createdAt
+				+ ", updatedAt=" + updatedAt + "}";
 	}
 
 }
@@ -1,14 +1,50 @@
 package com.task.repositories;
 
+import com.task.dto.CategoryVersion;
 import com.task.entities.Category;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CategoryRepo extends JpaRepository<Category, Long> {
+public interface CategoryRepo extends JpaRepository<Category, Long>, CategoryRepoCustom {
 
-    Optional<Category> findByCategoryName(@Param("categoryName") String categoryName);
+    // Keyset (seek) page: categories with an id greater than the last one seen, no COUNT(*) query issued
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_QUERY_TIMEOUT, value = QueryTimeouts.LOOKUP))
+    List<Category> findByCategoryIdGreaterThanOrderByCategoryIdAsc(@Param("categoryId") long categoryId, Limit limit);
+
+    // Bulk DELETE of the category row alone, its products have to be deleted first (no cascade through the entity)
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("DELETE FROM Category c WHERE c.categoryId = :categoryId")
+    int deleteCategoryById(@Param("categoryId") long categoryId);
+
+    // Versions behind the ETag of a category and of the category pages, read without loading any entity
+    @Query("SELECT new com.task.dto.CategoryVersion(c.categoryId, c.version, c.updatedAt) FROM Category c WHERE c.categoryId = :categoryId")
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_QUERY_TIMEOUT, value = QueryTimeouts.LOOKUP))
+    Optional<CategoryVersion> findVersionById(@Param("categoryId") long categoryId);
+
+    @Query("SELECT new com.task.dto.CategoryVersion(c.categoryId, c.version, c.updatedAt) FROM Category c")
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_QUERY_TIMEOUT, value = QueryTimeouts.LOOKUP))
+    Slice<CategoryVersion> findVersionsBy(Pageable pageable);
+
+    @Query("SELECT new com.task.dto.CategoryVersion(c.categoryId, c.version, c.updatedAt) FROM Category c"
+            + " WHERE c.categoryId > :categoryId ORDER BY c.categoryId")
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_QUERY_TIMEOUT, value = QueryTimeouts.LOOKUP))
+    List<CategoryVersion> findVersionsAfter(@Param("categoryId") long categoryId, Limit limit);
+
+    @Query("SELECT c.categoryId FROM Category c ORDER BY c.categoryId")
+    List<Long> findAllIds();
 }
@@ -0,0 +1,18 @@
+package com.task.repositories;
+
+import com.task.dto.FieldRow;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+// Category pages that read only the columns a client selected with ?fields=, see ProductRepoCustom
+public interface CategoryRepoCustom {
+
+    List<String> SELECTABLE_FIELDS = List.of("categoryId", "categoryName", "description");
+
+    Slice<FieldRow> findFieldsBy(List<String> fields, Pageable pageable);
+
+    List<FieldRow> findFieldsAfter(List<String> fields, long categoryId, Limit limit);
+}
@@ -0,0 +1,64 @@
+package com.task.repositories;
+
+import com.task.dto.FieldRow;
+import com.task.entities.Category;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class CategoryRepoCustomImpl implements CategoryRepoCustom {
+
+    private static final int VERSIONS = 1;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Slice<FieldRow> findFieldsBy(List<String> fields, Pageable pageable) {
+        return FieldQueries.slice(entityManager.createQuery(select(fields, null, pageable.getSort())), pageable, fields, VERSIONS);
+    }
+
+    @Override
+    public List<FieldRow> findFieldsAfter(List<String> fields, long categoryId, Limit limit) {
+        List<Tuple> tuples = entityManager.createQuery(select(fields, categoryId, Sort.by("categoryId")))
+                .setMaxResults(limit.max())
+                .getResultList();
+        return FieldQueries.rows(tuples, fields, VERSIONS);
+    }
+
+    // SELECT c.categoryId, c.version, <fields> FROM Category c [WHERE c.categoryId > :categoryId] ORDER BY <sort>,
+    // the offset pages are sorted like the versions behind their ETag
+    private CriteriaQuery<Tuple> select(List<String> fields, Long afterId, Sort sort) {
+        FieldQueries.checkSelectable(fields, SELECTABLE_FIELDS);
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Category> category = query.from(Category.class);
+
+        List<Selection<?>> selections = new ArrayList<>(VERSIONS + 1 + fields.size());
+        selections.add(category.get("categoryId"));
+        selections.add(category.get("version"));
+        for (String field : fields) {
+            selections.add(category.get(field));
+        }
+        query.multiselect(selections);
+
+        if (afterId != null) {
+            query.where(builder.greaterThan(category.get("categoryId"), afterId));
+        }
+        query.orderBy(QueryUtils.toOrders(sort, category, builder));
+        return query;
+    }
+}
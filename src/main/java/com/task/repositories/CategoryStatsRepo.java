@@ -0,0 +1,69 @@
+package com.task.repositories;
+
+import com.task.dto.CategoryAggregate;
+import com.task.entities.CategoryStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+// The updates are relative, so concurrent writes to products of the same category never overwrite each other's
+// change, and they must join the transaction of the product write they account for (MANDATORY)
+@Repository
+public interface CategoryStatsRepo extends JpaRepository<CategoryStats, Long> {
+
+    // Zero totals of a new category
+    @Modifying
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("INSERT INTO CategoryStats (categoryId, productCount, totalQuantity, stockValue) VALUES (:categoryId, 0, 0, 0.0)")
+    int create(@Param("categoryId") long categoryId);
+
+    // Moves the totals of a category by the given amounts
+    @Modifying
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("UPDATE CategoryStats s SET s.productCount = s.productCount + :products, s.totalQuantity = s.totalQuantity + :quantity,"
+            + " s.stockValue = s.stockValue + :value WHERE s.categoryId = :categoryId")
+    int add(@Param("categoryId") long categoryId, @Param("products") long products, @Param("quantity") long quantity,
+            @Param("value") double value);
+
+    // Takes the current quantity and value of a product out of (sign -1) or back into (sign 1) the totals of its
+    // category, around a write that changes the product without reading it first (PATCH)
+    @Modifying
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("UPDATE CategoryStats s SET"
+            + " s.totalQuantity = s.totalQuantity + :sign * (SELECT p.quantity FROM Product p WHERE p.productId = :productId),"
+            + " s.stockValue = s.stockValue + :sign * (SELECT p.price * p.quantity FROM Product p WHERE p.productId = :productId)"
+            + " WHERE s.categoryId = (SELECT p.category.categoryId FROM Product p WHERE p.productId = :productId)")
+    int addProduct(@Param("productId") long productId, @Param("sign") int sign);
+
+    // Stock released (positive quantity) or reserved (negative) on a product
+    @Modifying
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("UPDATE CategoryStats s SET s.totalQuantity = s.totalQuantity + :quantity,"
+            + " s.stockValue = s.stockValue + :quantity * (SELECT p.price FROM Product p WHERE p.productId = :productId)"
+            + " WHERE s.categoryId = (SELECT p.category.categoryId FROM Product p WHERE p.productId = :productId)")
+    int addStock(@Param("productId") long productId, @Param("quantity") int quantity);
+
+    @Modifying
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("DELETE FROM CategoryStats s WHERE s.categoryId = :categoryId")
+    int deleteByCategoryId(@Param("categoryId") long categoryId);
+
+    // Row lock of the reconciliation, product writes of the category wait for it at their totals update
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CategoryStats s WHERE s.categoryId = :categoryId")
+    Optional<CategoryStats> findForUpdate(@Param("categoryId") long categoryId);
+
+    // One row per category, the products are not read
+    @Query("SELECT new com.task.dto.CategoryAggregate(c.categoryId, c.categoryName, s.productCount, s.totalQuantity, s.stockValue)"
+            + " FROM CategoryStats s JOIN Category c ON c.categoryId = s.categoryId ORDER BY c.categoryId")
+    List<CategoryAggregate> findAggregates();
+}
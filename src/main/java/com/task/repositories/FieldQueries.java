@@ -0,0 +1,54 @@
+package com.task.repositories;
+
+import com.task.dto.FieldRow;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Shared part of the ?fields= tuple queries. Each tuple starts with the row id and its versions, the selected
+// fields follow in the requested order.
+final class FieldQueries {
+
+    private FieldQueries() {
+    }
+
+    // The field names end up in the SELECT, only the whitelisted ones may get there
+    static void checkSelectable(List<String> fields, List<String> selectable) {
+        for (String field : fields) {
+            if (!selectable.contains(field)) {
+                throw new IllegalArgumentException("Field " + field + " cannot be selected");
+            }
+        }
+    }
+
+    // Fetches one row more than the page size to know whether another page follows, like Spring Data's Slice queries
+    static Slice<FieldRow> slice(TypedQuery<Tuple> query, Pageable pageable, List<String> fields, int versions) {
+        List<Tuple> tuples = query.setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        List<FieldRow> rows = rows(tuples, fields, versions);
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    static List<FieldRow> rows(List<Tuple> tuples, List<String> fields, int versions) {
+        List<FieldRow> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            long[] rowVersions = new long[versions];
+            for (int i = 0; i < versions; i++) {
+                rowVersions[i] = (Long) tuple.get(1 + i);
+            }
+            Object[] values = new Object[fields.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = tuple.get(1 + versions + i);
+            }
+            rows.add(new FieldRow((Long) tuple.get(0), rowVersions, fields, values));
+        }
+        return rows;
+    }
+}
@@ -1,14 +1,102 @@
 package com.task.repositories;
 
+import com.task.dto.CategoryTotals;
+import com.task.dto.ProductIndexEntry;
+import com.task.dto.ProductVersion;
 import com.task.entities.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepo extends JpaRepository<Product, Long> {
+public interface ProductRepo extends JpaRepository<Product, Long>, ProductRepoCustom {
 
-    Optional<Product> findByProductName(@Param("productName") String productName);
+    // The category is fetched in the same SELECT as the product
+    @Override
+    @EntityGraph(attributePaths = "category")
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_QUERY_TIMEOUT, value = QueryTimeouts.LOOKUP))
+    Optional<Product> findById(Long id);
+
+    // Multi-get: the products of an id list with their categories, in one SELECT ... WHERE product_id IN (...)
+    @EntityGraph(attributePaths = "category")
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_QUERY_TIMEOUT, value = QueryTimeouts.LOOKUP))
+    List<Product> findByProductIdIn(Collection<Long> productIds);
+
+    // Offset page with the category fetched in the same SELECT, returned as a Slice so no COUNT(*) query is issued
+    @EntityGraph(attributePaths = "category")
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_QUERY_TIMEOUT, value = QueryTimeouts.LOOKUP))
+    Slice<Product> findAllBy(Pageable pageable);
+
+    // Keyset (seek) page: products with an id greater than the last one seen, no COUNT(*) query issued
+    @EntityGraph(attributePaths = "category")
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_QUERY_TIMEOUT, value = QueryTimeouts.LOOKUP))
+    List<Product> findByProductIdGreaterThanOrderByProductIdAsc(@Param("productId") long productId, Limit limit);
+
+    // Versions behind the ETag of a product and of the product pages, read without loading any entity
+    @Query("SELECT new com.task.dto.ProductVersion(p.productId, p.version, p.updatedAt, c.version, c.updatedAt) FROM Product p JOIN p.category c"
+            + " WHERE p.productId = :productId")
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_QUERY_TIMEOUT, value = QueryTimeouts.LOOKUP))
+    Optional<ProductVersion> findVersionById(@Param("productId") long productId);
+
+    @Query("SELECT new com.task.dto.ProductVersion(p.productId, p.version, p.updatedAt, c.version, c.updatedAt) FROM Product p JOIN p.category c")
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_QUERY_TIMEOUT, value = QueryTimeouts.LOOKUP))
+    Slice<ProductVersion> findVersionsBy(Pageable pageable);
+
+    @Query("SELECT new com.task.dto.ProductVersion(p.productId, p.version, p.updatedAt, c.version, c.updatedAt) FROM Product p JOIN p.category c"
+            + " WHERE p.productId > :productId ORDER BY p.productId")
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_QUERY_TIMEOUT, value = QueryTimeouts.LOOKUP))
+    List<ProductVersion> findVersionsAfter(@Param("productId") long productId, Limit limit);
+
+    // Next chunk of a category's product ids for the chunked bulk delete of a category
+    @Query("SELECT p.productId FROM Product p WHERE p.category.categoryId = :categoryId ORDER BY p.productId")
+    List<Long> findIdsByCategoryId(@Param("categoryId") long categoryId, Limit limit);
+
+    // Set-based uniqueness check used by the batch ingestion
+    @Query("SELECT p.productName FROM Product p WHERE p.productName IN :productNames")
+    List<String> findExistingProductNames(@Param("productNames") Collection<String> productNames);
+
+    // Forward-only cursor over the whole catalog for the export. Rows are fetched from the driver in chunks,
+    // the entities are read-only (no dirty-checking snapshots) and bypass the second-level cache.
+    @Query("SELECT p FROM Product p JOIN FETCH p.category ORDER BY p.productId")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"),
+            @QueryHint(name = SpecHints.HINT_SPEC_QUERY_TIMEOUT, value = QueryTimeouts.NONE)
+    })
+    Stream<Product> streamAllBy();
+
+    // Rows of the text index (see ProductTextIndex), the full rebuild reads them in id ranges
+    @Query("SELECT new com.task.dto.ProductIndexEntry(p.productId, p.productName, p.description, p.category.categoryId)"
+            + " FROM Product p WHERE p.productId BETWEEN :fromId AND :toId")
+    List<ProductIndexEntry> findIndexEntriesBetween(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Query("SELECT new com.task.dto.ProductIndexEntry(p.productId, p.productName, p.description, p.category.categoryId)"
+            + " FROM Product p WHERE p.productId IN :productIds")
+    List<ProductIndexEntry> findIndexEntries(@Param("productIds") Collection<Long> productIds);
+
+    @Query("SELECT MIN(p.productId) FROM Product p")
+    Long findMinProductId();
+
+    @Query("SELECT MAX(p.productId) FROM Product p")
+    Long findMaxProductId();
+
+    // Totals of a category recomputed from its products, for the reconciliation of category_stats
+    @Query("SELECT new com.task.dto.CategoryTotals(COUNT(p), COALESCE(SUM(p.quantity), 0), COALESCE(SUM(p.price * p.quantity), 0))"
+            + " FROM Product p WHERE p.category.categoryId = :categoryId")
+    CategoryTotals sumByCategoryId(@Param("categoryId") long categoryId);
 }
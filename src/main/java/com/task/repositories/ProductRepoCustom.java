@@ -0,0 +1,42 @@
+package com.task.repositories;
+
+import com.task.dto.FieldRow;
+import com.task.entities.Product;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.Instant;
+import java.util.List;
+
+// Product pages that read only the columns a client selected with ?fields=, as tuples: no entity is built,
+// so there is no dirty-checking snapshot and no second-level cache traffic. Also the single-row UPDATEs that evict
+// only their own product from the second-level cache.
+public interface ProductRepoCustom {
+
+    // Fields that can be selected, categoryId comes from the foreign key and categoryName from the joined category
+    List<String> SELECTABLE_FIELDS = List.of("productId", "productName", "price", "quantity", "description",
+            "categoryId", "categoryName");
+
+    // Offset page, returned as a Slice like findAllBy so no COUNT(*) query is issued
+    Slice<FieldRow> findFieldsBy(List<String> fields, Pageable pageable);
+
+    // Keyset page, products with an id greater than productId
+    List<FieldRow> findFieldsAfter(List<String> fields, long productId, Limit limit);
+
+    // Search page of the products matching the specification, sorted by the pageable, with the category fetched in
+    // the same SELECT. A Slice like findAllBy, JpaSpecificationExecutor would add a COUNT(*) query to every page.
+    Slice<Product> search(Specification<Product> specification, Pageable pageable);
+
+    // Single-statement conditional update behind PATCH: only the non null fields change, and only while the row is
+    // still at the version the client read. Returns the number of updated rows, 0 when the id or the version is stale.
+    int patchProduct(long productId, long version, String productName, Double price, Integer quantity,
+                     String description, Instant updatedAt);
+
+    // Atomic stock reservation: decrements only while enough stock is left, returns 0 when the product is missing or short
+    int reserveStock(long productId, int quantity, Instant updatedAt);
+
+    // Gives reserved stock back, returns 0 when the product is missing
+    int releaseStock(long productId, int quantity, Instant updatedAt);
+}
@@ -0,0 +1,172 @@
+package com.task.repositories;
+
+import com.task.dto.FieldRow;
+import com.task.entities.Category;
+import com.task.entities.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.jpa.SpecHints;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+class ProductRepoCustomImpl implements ProductRepoCustom {
+
+    // product id, product version and category version, the key of the page ETag
+    private static final int VERSIONS = 2;
+    // Query space of the single-row UPDATEs, no entity is mapped to it
+    private static final String SINGLE_ROW_UPDATES = "products_single_row_updates";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Slice<FieldRow> findFieldsBy(List<String> fields, Pageable pageable) {
+        return FieldQueries.slice(entityManager.createQuery(select(fields, null, pageable.getSort())), pageable, fields, VERSIONS);
+    }
+
+    @Override
+    public List<FieldRow> findFieldsAfter(List<String> fields, long productId, Limit limit) {
+        List<Tuple> tuples = entityManager.createQuery(select(fields, productId, Sort.by("productId")))
+                .setMaxResults(limit.max())
+                .getResultList();
+        return FieldQueries.rows(tuples, fields, VERSIONS);
+    }
+
+    @Override
+    public Slice<Product> search(Specification<Product> specification, Pageable pageable) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Product> query = builder.createQuery(Product.class);
+        Root<Product> product = query.from(Product.class);
+        product.fetch("category");
+
+        Predicate predicate = specification.toPredicate(product, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), product, builder));
+
+        // one row more than the page size tells whether another page follows
+        List<Product> products = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = products.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? products.subList(0, pageable.getPageSize()) : products, pageable, hasNext);
+    }
+
+    @Override
+    @Transactional
+    public int patchProduct(long productId, long version, String productName, Double price, Integer quantity,
+                            String description, Instant updatedAt) {
+        entityManager.flush();
+        NativeQuery<?> update = update("UPDATE products SET product_name = COALESCE(:productName, product_name),"
+                + " price = COALESCE(:price, price), quantity = COALESCE(:quantity, quantity),"
+                + " description = COALESCE(:description, description), version = version + 1, updated_at = :updatedAt"
+                + " WHERE product_id = :productId AND version = :version");
+        update.setParameter("productName", productName, StandardBasicTypes.STRING)
+                .setParameter("price", price, StandardBasicTypes.DOUBLE)
+                .setParameter("quantity", quantity, StandardBasicTypes.INTEGER)
+                .setParameter("description", description, StandardBasicTypes.STRING)
+                .setParameter("version", version);
+        return executeUpdate(update, productId, updatedAt);
+    }
+
+    @Override
+    @Transactional
+    public int reserveStock(long productId, int quantity, Instant updatedAt) {
+        NativeQuery<?> update = update("UPDATE products SET quantity = quantity - :quantity, version = version + 1,"
+                + " updated_at = :updatedAt WHERE product_id = :productId AND quantity >= :quantity");
+        update.setParameter("quantity", quantity);
+        return executeUpdate(update, productId, updatedAt);
+    }
+
+    @Override
+    @Transactional
+    public int releaseStock(long productId, int quantity, Instant updatedAt) {
+        NativeQuery<?> update = update("UPDATE products SET quantity = quantity + :quantity, version = version + 1,"
+                + " updated_at = :updatedAt WHERE product_id = :productId");
+        update.setParameter("quantity", quantity);
+        return executeUpdate(update, productId, updatedAt);
+    }
+
+    // A bulk statement, HQL or native, makes Hibernate drop the whole Product region (every native statement without
+    // query spaces drops all regions). These touch one row, so they declare a space no entity maps to and evict only
+    // their product, once more after the commit so that a concurrent load cannot put the old row back for long.
+    private NativeQuery<?> update(String sql) {
+        return entityManager.createNativeQuery(sql)
+                .setHint(SpecHints.HINT_SPEC_QUERY_TIMEOUT, Integer.valueOf(QueryTimeouts.UPDATE))
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(SINGLE_ROW_UPDATES);
+    }
+
+    private int executeUpdate(NativeQuery<?> update, long productId, Instant updatedAt) {
+        int updated = update.setParameter("productId", productId)
+                // a plain TIMESTAMP in UTC (hibernate.jdbc.time_zone) like the entities map updated_at
+                .setParameter("updatedAt", Timestamp.from(updatedAt), StandardBasicTypes.TIMESTAMP)
+                .executeUpdate();
+        // like a bulk HQL statement, the persistence context no longer holds the old row
+        entityManager.clear();
+        if (updated > 0) {
+            evict(productId);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(productId);
+                }
+            });
+        }
+        return updated;
+    }
+
+    private void evict(long productId) {
+        entityManager.getEntityManagerFactory().getCache().evict(Product.class, productId);
+    }
+
+    // SELECT p.productId, p.version, c.version, <fields> FROM Product p JOIN p.category c
+    // [WHERE p.productId > :productId] ORDER BY <sort>, the offset pages are sorted like the versions behind their ETag
+    private CriteriaQuery<Tuple> select(List<String> fields, Long afterId, Sort sort) {
+        FieldQueries.checkSelectable(fields, SELECTABLE_FIELDS);
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Product> product = query.from(Product.class);
+        Join<Product, Category> category = product.join("category");
+
+        List<Selection<?>> selections = new ArrayList<>(VERSIONS + 1 + fields.size());
+        selections.add(product.get("productId"));
+        selections.add(product.get("version"));
+        selections.add(category.get("version"));
+        for (String field : fields) {
+            selections.add(field.startsWith("category") ? category.get(field) : product.get(field));
+        }
+        query.multiselect(selections);
+
+        if (afterId != null) {
+            query.where(builder.greaterThan(product.get("productId"), afterId));
+        }
+        query.orderBy(QueryUtils.toOrders(sort, product, builder));
+        return query;
+    }
+}
@@ -0,0 +1,35 @@
+package com.task.repositories;
+
+import com.task.entities.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+// Filters of the product search. Each one maps to a column of the search indexes (see V5__product_search_indexes.sql),
+// inStock is a residual filter applied to the rows those indexes return.
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    // Compares the foreign key column, the category table is not joined for it
+    public static Specification<Product> inCategory(long categoryId) {
+        return (product, query, builder) -> builder.equal(product.get("category").get("categoryId"), categoryId);
+    }
+
+    public static Specification<Product> priceAtLeast(double minPrice) {
+        return (product, query, builder) -> builder.greaterThanOrEqualTo(product.get("price"), minPrice);
+    }
+
+    public static Specification<Product> priceAtMost(double maxPrice) {
+        return (product, query, builder) -> builder.lessThanOrEqualTo(product.get("price"), maxPrice);
+    }
+
+    public static Specification<Product> inStock() {
+        return (product, query, builder) -> builder.greaterThan(product.get("quantity"), 0);
+    }
+
+    // LIKE 'prefix%' with the LIKE wildcards of the prefix escaped, a range scan on an index starting with the name
+    public static Specification<Product> nameStartsWith(String prefix) {
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (product, query, builder) -> builder.like(product.get("productName"), pattern, '\\');
+    }
+}
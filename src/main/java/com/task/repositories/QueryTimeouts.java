@@ -0,0 +1,18 @@
+package com.task.repositories;
+
+// Statement timeouts in milliseconds of the repository queries, set with @QueryHints (jakarta.persistence.query.timeout).
+// A query that runs past its timeout is cancelled by the driver and its request fails at once, instead of holding a
+// request thread and a pooled connection while MySQL is slow. Queries without a hint take the default of
+// spring.jpa.properties.jakarta.persistence.query.timeout.
+public final class QueryTimeouts {
+
+    // Single rows and pages behind the GET endpoints
+    public static final String LOOKUP = "1000";
+    // Single-row UPDATEs (PATCH, stock reservations)
+    public static final String UPDATE = "2000";
+    // The export cursor reads the whole table
+    public static final String NONE = "0";
+
+    private QueryTimeouts() {
+    }
+}
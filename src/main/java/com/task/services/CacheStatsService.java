@@ -0,0 +1,50 @@
+package com.task.services;
+
+import com.task.dto.ApiResponse;
+import com.task.dto.CacheRegionStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+public class CacheStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheStatsService.class);
+
+    // JCache statistics MXBeans registered by Caffeine for every second-level cache region
+    private static final String STATISTICS_PATTERN = "javax.cache:type=CacheStatistics,*";
+
+    private static final ApiResponse<Void> STATS_FAILED = ApiResponse.error(500, "An error occurred while fetching cache statistics.");
+
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+    public ResponseEntity<?> getCacheStats() {
+        log.debug("getCacheStats..");
+        try {
+            Map<String, CacheRegionStats> regions = new TreeMap<>();
+            for (ObjectName name : mBeanServer.queryNames(new ObjectName(STATISTICS_PATTERN), null)) {
+                regions.put(name.getKeyProperty("Cache"), new CacheRegionStats(
+                        (Long) mBeanServer.getAttribute(name, "CacheHits"),
+                        (Long) mBeanServer.getAttribute(name, "CacheMisses"),
+                        (Long) mBeanServer.getAttribute(name, "CachePuts"),
+                        (Long) mBeanServer.getAttribute(name, "CacheRemovals"),
+                        (Long) mBeanServer.getAttribute(name, "CacheEvictions"),
+                        (Float) mBeanServer.getAttribute(name, "CacheHitPercentage")));
+            }
+
+            return ResponseEntity.status(HttpStatus.OK).body(ApiResponse.ok("Request successful", regions));
+
+        } catch (Exception e) {
+            log.error("getCacheStats >> failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(STATS_FAILED);
+        }
+    }
+}
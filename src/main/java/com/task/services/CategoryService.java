@@ -1,221 +1,647 @@
 package com.task.services;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.task.config.ReadCoalescingProperties;
+import com.task.dto.ApiResponse;
+import com.task.dto.CategoryAggregate;
+import com.task.dto.CategoryDeletionStatus;
+import com.task.dto.CategoryVersion;
+import com.task.dto.FieldRow;
+import com.task.dto.KeysetResponse;
+import com.task.dto.MultiGetItem;
 import com.task.entities.Category;
 import com.task.repositories.CategoryRepo;
+import com.task.repositories.CategoryStatsRepo;
+import com.task.repositories.ProductRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.WebRequest;
 
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 @Service
 public class CategoryService {
 
+    private static final Logger log = LoggerFactory.getLogger(CategoryService.class);
+
+    // Products of a category are deleted with bulk DELETEs of at most this many ids
+    private static final int DELETE_CHUNK_SIZE = 1_000;
+    // Order of the offset pages. The page and the versions behind its ETag are read by separate queries, both have
+    // to see the same rows in the same order.
+    private static final Sort PAGE_ORDER = Sort.by("categoryId");
+
+    // Fixed responses, built once and shared by every request
+    private static final ApiResponse<Void> CATEGORY_DELETED = ApiResponse.ok("Category and its products deleted successfully");
+    private static final ApiResponse<Void> CATEGORY_EXISTS = ApiResponse.error(400, "This Category already exist.");
+    private static final ApiResponse<Void> CATEGORY_NAME_EXISTS = ApiResponse.error(400, "Category name already exists.");
+    private static final ApiResponse<Void> DESCRIPTION_REQUIRED = ApiResponse.error(400, "Category description is required.");
+    private static final ApiResponse<Void> INVALID_CURSOR = ApiResponse.error(400, "Invalid cursor.");
+    private static final ApiResponse<Void> INVALID_PAGE_SIZE = ApiResponse.error(400, "Page size must be greater than 0.");
+    private static final ApiResponse<Void> NAME_REQUIRED = ApiResponse.error(400, "Category name is required.");
+    private static final ApiResponse<Void> CATEGORY_NOT_FOUND = ApiResponse.error(404, "Category not found in the system.");
+    private static final ApiResponse<Void> CATEGORY_NOT_FOUND_FOR_UPDATE = ApiResponse.error(404, "Category not found.");
+    private static final ApiResponse<Void> JOB_NOT_FOUND = ApiResponse.error(404, "Deletion job not found.");
+    private static final ApiResponse<Void> NO_CATEGORIES_FOUND = ApiResponse.error(404, "No categories found in the system.");
+    private static final ApiResponse<Void> CONCURRENT_UPDATE = ApiResponse.error(409, "Category was modified concurrently, fetch it again before updating.");
+    private static final ApiResponse<Void> DELETE_CONFLICT = ApiResponse.error(409, "Products were added to the category during the delete, try again.");
+    private static final ApiResponse<Void> VERSION_MISMATCH = ApiResponse.error(412, "Category has been modified, fetch it again before updating.");
+    private static final ApiResponse<Void> ADD_FAILED = ApiResponse.error(500, "An error occurred while adding the category.");
+    private static final ApiResponse<Void> DELETE_FAILED = ApiResponse.error(500, "An error occurred while deleting the category.");
+    private static final ApiResponse<Void> FETCH_AGGREGATES_FAILED = ApiResponse.error(500, "An error occurred while fetching category aggregates.");
+    private static final ApiResponse<Void> FETCH_ALL_FAILED = ApiResponse.error(500, "An error occurred while fetching categories.");
+    private static final ApiResponse<Void> FETCH_FAILED = ApiResponse.error(500, "An error occurred while fetching a category.");
+    private static final ApiResponse<Void> UPDATE_FAILED = ApiResponse.error(500, "An error occurred while updating the category.");
+
     private CategoryRepo categoryRepo;
+    private CategoryStatsRepo categoryStatsRepo;
+    private ProductRepo productRepo;
+    private TransactionTemplate transactionTemplate;
+    private TaskExecutor taskExecutor;
+    private ApplicationEventPublisher eventPublisher;
+    private ObjectWriter responseWriter;
+    private TransactionTemplate readOnlyTransaction;
+    private SingleFlight<Long, ResponseEntity<?>> categoryReads;
+
+    // Asynchronous deletes, kept for an hour after their last progress
+    private final Cache<String, DeletionJob> deletionJobs = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofHours(1))
+            .maximumSize(10_000)
+            .build();
 
     @Autowired
-    public CategoryService(CategoryRepo categoryRepo) {
+    public CategoryService(CategoryRepo categoryRepo, CategoryStatsRepo categoryStatsRepo, ProductRepo productRepo,
+                           TransactionTemplate transactionTemplate, @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                           ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper,
+                           ReadCoalescingProperties readCoalescingProperties) {
         this.categoryRepo = categoryRepo;
+        this.categoryStatsRepo = categoryStatsRepo;
+        this.productRepo = productRepo;
+        this.transactionTemplate = transactionTemplate;
+        this.taskExecutor = taskExecutor;
+        this.eventPublisher = eventPublisher;
+        this.responseWriter = objectMapper.writerFor(ApiResponse.class);
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.categoryReads = new SingleFlight<>(readCoalescingProperties.ttl(), readCoalescingProperties.maximumSize());
     }
 
+    @Transactional(readOnly = true)
     public ResponseEntity<?> getAllCategories(int page, int size) {
-        System.out.println("getAllCategories >> page : " + page + " & size : " + size);
-        Map<String, Object> response = new HashMap<>();
-
+        log.debug("getAllCategories >> page : {} & size : {}", page, size);
         try {
-            Pageable pageable = PageRequest.of(page, size);
+            Pageable pageable = PageRequest.of(page, size, PAGE_ORDER);
             Page<Category> pageCategories = categoryRepo.findAll(pageable);
 
             if (pageCategories.isEmpty()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(404, "No categories found in the system."));
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(NO_CATEGORIES_FOUND);
             }
 
-            response.put("success", true);
-            response.put("message", "Request successful");
-            response.put("data", pageCategories.get());   // to get categories only and not include pagination metadata
+            ETags.Page etag = ETags.page();
+            pageCategories.forEach(c -> etag.add(c.getCategoryId(), c.getVersion()));
 
-            return ResponseEntity.status(HttpStatus.OK).body(response);
+            // the content only, not the pagination metadata
+            return ResponseEntity.status(HttpStatus.OK).eTag(etag.build(pageCategories.hasNext()))
+                    .body(ApiResponse.ok("Request successful", pageCategories.getContent()));
 
         } catch (Exception e) {
-            e.printStackTrace();
-            response.put("success", false);
-            response.put("error", createErrorMap(500, "An error occurred while fetching categories."));
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            log.error("getAllCategories >> failed", e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(FETCH_ALL_FAILED);
         }
     }
 
 
-    public ResponseEntity<?> addCategory(Category category) {
-        System.out.println("addCategory >> category : \n" + category);
+    // Keyset paginated listing, the cost of a page does not depend on how deep the client has scrolled
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getCategoriesAfter(String after, int size) {
+        log.debug("getCategoriesAfter >> after : {} & size : {}", after, size);
+        try {
+            if (size <= 0) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(INVALID_PAGE_SIZE);
+            }
 
-        Map<String, Object> response = new HashMap<>();
+            long lastId;
+            try {
+                lastId = SeekCursor.decode(after);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(INVALID_CURSOR);
+            }
+
+            // fetch one extra row to know whether another page exists
+            List<Category> categories = categoryRepo.findByCategoryIdGreaterThanOrderByCategoryIdAsc(lastId, Limit.of(size + 1));
+
+            if (categories.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(NO_CATEGORIES_FOUND);
+            }
+
+            String nextCursor = null;
+            if (categories.size() > size) {
+                categories = categories.subList(0, size);
+                nextCursor = SeekCursor.encode(categories.get(size - 1).getCategoryId());
+            }
+
+            ETags.Page etag = ETags.page();
+            categories.forEach(c -> etag.add(c.getCategoryId(), c.getVersion()));
+
+            return ResponseEntity.status(HttpStatus.OK).eTag(etag.build(nextCursor != null))
+                    .body(KeysetResponse.of(categories, nextCursor));
+
+        } catch (Exception e) {
+            log.error("getCategoriesAfter >> failed", e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(FETCH_ALL_FAILED);
+        }
+    }
 
+    // Multi-get (?ids=3,1,8): the categories of the list in one IN query, returned in request order with a 404 item
+    // for every id that does not exist
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getCategoriesByIds(String ids) {
+        log.debug("getCategoriesByIds >> ids : {}", ids);
         try {
-            // Input validation
-            if (category.getCategoryName() == null || category.getCategoryName().isEmpty()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "Category name is required."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            List<Long> idList;
+            try {
+                idList = IdList.parse(ids);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(400, e.getMessage()));
             }
-            if (category.getDescription() == null || category.getDescription().isEmpty()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "Category description is required."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+
+            Map<Long, Category> categories = new HashMap<>();
+            for (Category category : categoryRepo.findAllById(new HashSet<>(idList))) {
+                categories.put(category.getCategoryId(), category);
             }
 
-            // Fetch the category by ID
-            Optional<Category> categoryOptional = categoryRepo.findByCategoryName(category.getCategoryName());
-            if (categoryOptional.isPresent()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "This Category already exist."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            List<MultiGetItem<Category>> items = new ArrayList<>(idList.size());
+            for (Long id : idList) {
+                Category category = categories.get(id);
+                items.add(category != null ? MultiGetItem.found(id, category) : MultiGetItem.missing(id, CATEGORY_NOT_FOUND.error().details()));
+            }
+            return ResponseEntity.status(HttpStatus.OK).body(ApiResponse.ok("Request successful", items));
+
+        } catch (Exception e) {
+            log.error("getCategoriesByIds >> failed", e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(FETCH_ALL_FAILED);
+        }
+    }
+
+    // Page of the selected fields only (?fields=productId,productName,price). The SELECT reads those columns plus the
+    // row key behind the ETag, as tuples: no entity is built. Offset paged, or keyset paged when after is supplied.
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getCategoryFields(int page, int size, String after, String fields) {
+        log.debug("getCategoryFields >> page : {} & size : {} & after : {} & fields : {}", page, size, after, fields);
+
+        try {
+            List<String> selected;
+            try {
+                selected = FieldSelection.parse(fields, CategoryRepo.SELECTABLE_FIELDS);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(400, e.getMessage()));
+            }
+            if (size <= 0) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(INVALID_PAGE_SIZE);
+            }
+            ETags.Page etag = ETags.page(String.join(",", selected));
+
+            if (after == null) {
+                Slice<FieldRow> rows = categoryRepo.findFieldsBy(selected, PageRequest.of(page, size, PAGE_ORDER));
+                if (rows.isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(NO_CATEGORIES_FOUND);
+                }
+                rows.forEach(row -> etag.add(row.id(), row.versions()));
+                return ResponseEntity.status(HttpStatus.OK).eTag(etag.build(rows.hasNext()))
+                        .body(ApiResponse.ok("Request successful", rows.getContent()));
+            }
+
+            long lastId;
+            try {
+                lastId = SeekCursor.decode(after);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(INVALID_CURSOR);
             }
 
-            // Save the Category
-            Category savedCategory = categoryRepo.save(category);
+            List<FieldRow> rows = categoryRepo.findFieldsAfter(selected, lastId, Limit.of(size + 1));
+            if (rows.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(NO_CATEGORIES_FOUND);
+            }
 
-            response.put("success", true);
-            response.put("message", "Product added successfully");
-            response.put("data", savedCategory);
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            String nextCursor = null;
+            if (rows.size() > size) {
+                rows = rows.subList(0, size);
+                nextCursor = SeekCursor.encode(rows.get(size - 1).id());
+            }
+            rows.forEach(row -> etag.add(row.id(), row.versions()));
+            return ResponseEntity.status(HttpStatus.OK).eTag(etag.build(nextCursor != null))
+                    .body(KeysetResponse.of(rows, nextCursor));
 
         } catch (Exception e) {
-            e.printStackTrace();
-            response.put("success", false);
-            response.put("error", createErrorMap(500, "An error occurred while adding the category."));
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            log.error("getCategoryFields >> failed", e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(FETCH_ALL_FAILED);
         }
     }
 
-    public ResponseEntity<?> getCategory(Long id) {
-        System.out.println("getCategory >> id :: " + id);
-        Map<String, Object> response = new HashMap<>();
+    // Conditional GET of a page (If-None-Match only, a removed row would not move a Last-Modified date).
+    // Returns true when a 304 has been prepared on the request, the page then does not need to be loaded.
+    @Transactional(readOnly = true)
+    public boolean isCategoryPageNotModified(int page, int size, WebRequest webRequest) {
+        return isCategoryPageNotModified(page, size, null, webRequest);
+    }
 
+    // Keyset counterpart of isCategoryPageNotModified
+    @Transactional(readOnly = true)
+    public boolean isCategoryPageAfterNotModified(String after, int size, WebRequest webRequest) {
+        return isCategoryPageAfterNotModified(after, size, null, webRequest);
+    }
+
+    // Conditional GET of a ?fields= page, the same versions with the selected fields as part of the tag
+    @Transactional(readOnly = true)
+    public boolean isCategoryFieldsPageNotModified(int page, int size, String after, String fields, WebRequest webRequest) {
+        List<String> selected;
         try {
-            // Fetch the category by ID
-            Optional<Category> categoryOptional = categoryRepo.findById(id);
+            selected = FieldSelection.parse(fields, CategoryRepo.SELECTABLE_FIELDS);
+        } catch (IllegalArgumentException e) {
+            return false;   // rejected with a 400 by getCategoryFields
+        }
+        String variant = String.join(",", selected);
+        return after == null
+                ? isCategoryPageNotModified(page, size, variant, webRequest)
+                : isCategoryPageAfterNotModified(after, size, variant, webRequest);
+    }
 
-            if (categoryOptional.isEmpty()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(404, "Category not found in the system."));
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    private boolean isCategoryPageNotModified(int page, int size, String variant, WebRequest webRequest) {
+        if (!ETags.hasIfNoneMatch(webRequest) || page < 0 || size <= 0) {
+            return false;
+        }
+        try {
+            Slice<CategoryVersion> versions = categoryRepo.findVersionsBy(PageRequest.of(page, size, PAGE_ORDER));
+            if (versions.isEmpty()) {
+                return false;
             }
+            ETags.Page etag = ETags.page(variant);
+            versions.forEach(v -> etag.add(v.categoryId(), v.version()));
+            return webRequest.checkNotModified(etag.build(versions.hasNext()));
 
-            response.put("success", true);
-            response.put("message", "Request successful");
-            response.put("data", categoryOptional.get());
+        } catch (Exception e) {
+            log.warn("isCategoryPageNotModified >> version lookup failed, serving the full page", e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return false;
+        }
+    }
 
-            return ResponseEntity.status(HttpStatus.OK).body(response);
+    private boolean isCategoryPageAfterNotModified(String after, int size, String variant, WebRequest webRequest) {
+        if (!ETags.hasIfNoneMatch(webRequest) || size <= 0) {
+            return false;
+        }
+        long lastId;
+        try {
+            lastId = SeekCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            return false;   // rejected with a 400 by getCategoriesAfter
+        }
+        try {
+            List<CategoryVersion> versions = categoryRepo.findVersionsAfter(lastId, Limit.of(size + 1));
+            if (versions.isEmpty()) {
+                return false;
+            }
+            ETags.Page etag = ETags.page(variant);
+            versions.stream().limit(size).forEach(v -> etag.add(v.categoryId(), v.version()));
+            return webRequest.checkNotModified(etag.build(versions.size() > size));
+
+        } catch (Exception e) {
+            log.warn("isCategoryPageAfterNotModified >> version lookup failed, serving the full page", e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return false;
+        }
+    }
+
+    // Product count, total quantity and stock value of every category, read from category_stats: one row per
+    // category whatever the number of products
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getCategoryAggregates() {
+        log.debug("getCategoryAggregates..");
+        try {
+            List<CategoryAggregate> aggregates = categoryStatsRepo.findAggregates();
+
+            if (aggregates.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(NO_CATEGORIES_FOUND);
+            }
+
+            return ResponseEntity.status(HttpStatus.OK).body(ApiResponse.ok("Request successful", aggregates));
 
         } catch (Exception e) {
-            e.printStackTrace();
-            response.put("success", false);
-            response.put("error", createErrorMap(500, "An error occurred while fetching a category."));
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            log.error("getCategoryAggregates >> failed", e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(FETCH_AGGREGATES_FAILED);
         }
     }
 
-    // Deleting a category will automatically remove all associated products due to the configured cascading relationship.
+    // The category starts with zero totals in category_stats, inserted in the same transaction
     @Transactional
-    public ResponseEntity<?> deleteCategory(Long id) {
-        System.out.println("deleteCategory >> id :: " + id);
-        Map<String, Object> response = new HashMap<>();
+    public ResponseEntity<?> addCategory(Category category) {
+        log.debug("addCategory >> categoryName : {}", category.getCategoryName());
 
         try {
-            // Fetch the category by ID
-            Optional<Category> categoryOptional = categoryRepo.findById(id);
+            // Input validation
+            if (category.getCategoryName() == null || category.getCategoryName().isEmpty()) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(NAME_REQUIRED);
+            }
+            if (category.getDescription() == null || category.getDescription().isEmpty()) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(DESCRIPTION_REQUIRED);
+            }
+
+            // Save the Category, a duplicate name is rejected by uk_categories_category_name
+            Category savedCategory = categoryRepo.saveAndFlush(category);
+            categoryStatsRepo.create(savedCategory.getCategoryId());
 
-            if (categoryOptional.isEmpty()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(404, "Category not found in the system."));
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.ok("Product added successfully", savedCategory));
+
+        } catch (DataIntegrityViolationException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            if (!ConstraintViolations.isViolationOf(e, ConstraintViolations.UK_CATEGORY_NAME)) {
+                log.error("addCategory >> failed", e);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ADD_FAILED);
             }
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(CATEGORY_EXISTS);
+        } catch (Exception e) {
+            log.error("addCategory >> failed", e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ADD_FAILED);
+        }
+    }
 
-            // Delete the category
-            categoryRepo.deleteById(id);
+    // Conditional GET of a category, answered from its modification time.
+    // Returns true when a 304 has been prepared on the request, the category then does not need to be loaded.
+    @Transactional(readOnly = true)
+    public boolean isCategoryNotModified(Long id, WebRequest webRequest) {
+        if (!ETags.isConditional(webRequest)) {
+            return false;
+        }
+        try {
+            return categoryRepo.findVersionById(id)
+                    .map(v -> webRequest.checkNotModified(ETags.of(v.categoryId(), v.version()), ETags.lastModified(v.updatedAt())))
+                    .orElse(false);
 
-            response.put("success", true);
-            response.put("message", "Category and its products deleted successfully");
+        } catch (Exception e) {
+            log.warn("isCategoryNotModified >> version lookup failed for id : {}, serving the full category", id, e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return false;
+        }
+    }
 
-            return ResponseEntity.status(HttpStatus.OK).body(response);
+    // Concurrent GETs of the same category share one load and one serialized response (see SingleFlight). The load
+    // runs in its own read-only transaction, so callers waiting on it hold no connection.
+    public ResponseEntity<?> getCategory(Long id) {
+        log.debug("getCategory >> id : {}", id);
+        try {
+            return categoryReads.get(id, () -> readOnlyTransaction.execute(status -> loadCategory(id)));
 
         } catch (Exception e) {
-            e.printStackTrace();
-            response.put("success", false);
-            response.put("error", createErrorMap(500, "An error occurred while deleting the category."));
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            log.error("getCategory >> failed for id : {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(FETCH_FAILED);
         }
     }
 
+    private ResponseEntity<?> loadCategory(Long id) {
+        Optional<Category> categoryOptional = categoryRepo.findById(id);
 
-    public ResponseEntity<?> updateCategory(Long id, Category category) {
-        System.out.println("updateCategory >> id : [" + id + "]\n" + category);
+        if (categoryOptional.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(CATEGORY_NOT_FOUND);
+        }
 
-        Map<String, Object> response = new HashMap<>();
+        Category category = categoryOptional.get();
+
+        // written once here, every caller sharing the load gets the same bytes
+        byte[] body;
+        try {
+            body = responseWriter.writeValueAsBytes(ApiResponse.ok("Request successful", category));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize category " + id, e);
+        }
+
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(ETags.of(category.getCategoryId(), category.getVersion()))
+                .lastModified(ETags.lastModified(category.getUpdatedAt()))
+                .body(body);
+    }
+
+    // Deletes the products of the category with bulk DELETEs of DELETE_CHUNK_SIZE ids, then the category row, all in
+    // one transaction. Nothing is loaded into the persistence context, and Hibernate invalidates the Product and
+    // Category cache regions (and the cached queries over them) for every bulk statement.
+    @Transactional
+    public ResponseEntity<?> deleteCategory(Long id) {
+        log.debug("deleteCategory >> id : {}", id);
+        categoryReads.invalidateAfterCommit(id);
+        try {
+            if (!categoryRepo.existsById(id)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(CATEGORY_NOT_FOUND);
+            }
+
+            long productsDeleted = 0;
+            int deleted;
+            do {
+                deleted = deleteProductChunk(id);
+                productsDeleted += deleted;
+            } while (deleted == DELETE_CHUNK_SIZE);
+
+            // Delete the category, with its totals
+            categoryStatsRepo.deleteByCategoryId(id);
+            categoryRepo.deleteCategoryById(id);
+            log.debug("deleteCategory >> id : {} & productsDeleted : {}", id, productsDeleted);
+
+            return ResponseEntity.status(HttpStatus.OK).body(CATEGORY_DELETED);
+
+        } catch (DataIntegrityViolationException e) {
+            // a product was added to the category while it was being deleted
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(DELETE_CONFLICT);
+        } catch (Exception e) {
+            log.error("deleteCategory >> failed for id : {}", id, e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(DELETE_FAILED);
+        }
+    }
+
+    // Job mode for huge categories: the delete runs on the application task executor, one transaction per chunk,
+    // and the caller polls the returned job. Jobs are held in memory by the node that runs them.
+    public ResponseEntity<?> deleteCategoryAsync(Long id) {
+        log.debug("deleteCategoryAsync >> id : {}", id);
+        try {
+            if (!categoryRepo.existsById(id)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(CATEGORY_NOT_FOUND);
+            }
+
+            DeletionJob job = new DeletionJob(UUID.randomUUID().toString(), id);
+            deletionJobs.put(job.jobId, job);
+            taskExecutor.execute(() -> runDeletionJob(job));
+
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .location(URI.create("/api/categories/delete-jobs/" + job.jobId))
+                    .body(ApiResponse.ok("Category delete started", job.status()));
+
+        } catch (Exception e) {
+            log.error("deleteCategoryAsync >> failed for id : {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(DELETE_FAILED);
+        }
+    }
+
+    public ResponseEntity<?> getDeletionJob(String jobId) {
+        log.debug("getDeletionJob >> jobId : {}", jobId);
+        DeletionJob job = deletionJobs.getIfPresent(jobId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(JOB_NOT_FOUND);
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).body(ApiResponse.ok("Request successful", job.status()));
+    }
+
+    private void runDeletionJob(DeletionJob job) {
+        try {
+            int deleted;
+            do {
+                deleted = transactionTemplate.execute(status -> deleteProductChunk(job.categoryId));
+                job.productsDeleted += deleted;
+                deletionJobs.put(job.jobId, job);   // progress also renews the expiry
+            } while (deleted == DELETE_CHUNK_SIZE);
+
+            // the totals of the category are only dropped with it, they still count the products deleted so far
+            transactionTemplate.executeWithoutResult(status -> {
+                categoryStatsRepo.deleteByCategoryId(job.categoryId);
+                categoryRepo.deleteCategoryById(job.categoryId);
+            });
+            job.state = "COMPLETED";
+            log.info("runDeletionJob >> category {} deleted with {} products", job.categoryId, job.productsDeleted);
+
+        } catch (DataIntegrityViolationException e) {
+            job.error = "Products were added to the category during the delete, try again.";
+            job.state = "FAILED";
+        } catch (Exception e) {
+            log.error("runDeletionJob >> failed for category : {}", job.categoryId, e);
+            job.error = "An error occurred while deleting the category.";
+            job.state = "FAILED";
+        }
+        deletionJobs.put(job.jobId, job);
+    }
+
+    // One bulk DELETE of up to DELETE_CHUNK_SIZE products of the category, returns the number of products deleted.
+    // The products leave the text index when the transaction of the chunk commits.
+    private int deleteProductChunk(long categoryId) {
+        List<Long> productIds = productRepo.findIdsByCategoryId(categoryId, Limit.of(DELETE_CHUNK_SIZE));
+        if (!productIds.isEmpty()) {
+            productRepo.deleteAllByIdInBatch(productIds);
+            eventPublisher.publishEvent(new ProductIndexEvent.Delete(productIds));
+        }
+        return productIds.size();
+    }
+
+
+    // With If-Match the category must still be at the version of the tag (412 otherwise), without it a
+    // concurrent update between our read and our write is still detected through @Version (409). The read and the
+    // write share one transaction, so both run on the primary.
+    @Transactional
+    public ResponseEntity<?> updateCategory(Long id, Category category, String ifMatch) {
+        log.debug("updateCategory >> id : {} & categoryName : {}", id, category.getCategoryName());
+        categoryReads.invalidateAfterCommit(id);
 
         try {
             // Input validation
             if (category.getCategoryName() == null || category.getCategoryName().isEmpty()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "Category name is required."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(NAME_REQUIRED);
             }
             if (category.getDescription() == null || category.getDescription().isEmpty()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "Category description is required."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(DESCRIPTION_REQUIRED);
             }
 
             // Fetch the category by ID
             Optional<Category> existingCategoryOpt = categoryRepo.findById(id);
             if (existingCategoryOpt.isEmpty()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(404, "Category not found."));
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(CATEGORY_NOT_FOUND_FOR_UPDATE);
             }
+            Category updatedCategory = existingCategoryOpt.get();
 
-            // Check if the new category name already exists for another category
-            Optional<Category> categoryWithSameName = categoryRepo.findByCategoryName(category.getCategoryName());
-            if (categoryWithSameName.isPresent() && (categoryWithSameName.get().getCategoryId() != id)) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "Category name already exists."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            long[] versions = ifMatch == null ? null : ETags.versionsOf(ifMatch, id);
+            if (ifMatch != null && (versions == null || versions[0] != updatedCategory.getVersion())) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(VERSION_MISMATCH);
             }
 
             // Update category details
-            Category updatedCategory = existingCategoryOpt.get();
             updatedCategory.setCategoryName(category.getCategoryName());
             updatedCategory.setDescription(category.getDescription());
 
-            // Save the updated category
-            categoryRepo.save(updatedCategory);
+            // Save the updated category, a name taken by another category is rejected by uk_categories_category_name
+            categoryRepo.saveAndFlush(updatedCategory);
 
-            response.put("success", true);
-            response.put("message", "Category updated successfully");
-            response.put("data", updatedCategory);
-            return ResponseEntity.status(HttpStatus.OK).body(response);
+            return ResponseEntity.status(HttpStatus.OK)
+                    .eTag(ETags.of(updatedCategory.getCategoryId(), updatedCategory.getVersion()))
+                    .body(ApiResponse.ok("Category updated successfully", updatedCategory));
 
+        } catch (ObjectOptimisticLockingFailureException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            if (ifMatch != null) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(VERSION_MISMATCH);
+            }
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(CONCURRENT_UPDATE);
+        } catch (DataIntegrityViolationException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            if (!ConstraintViolations.isViolationOf(e, ConstraintViolations.UK_CATEGORY_NAME)) {
+                log.error("updateCategory >> failed for id : {}", id, e);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(UPDATE_FAILED);
+            }
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(CATEGORY_NAME_EXISTS);
         } catch (Exception e) {
-            e.printStackTrace();
-            response.put("success", false);
-            response.put("error", createErrorMap(500, "An error occurred while updating the category."));
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            log.error("updateCategory >> failed for id : {}", id, e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(UPDATE_FAILED);
         }
     }
 
-    private Map<String, Object> createErrorMap(int code, String details) {
-        Map<String, Object> errorMap = new HashMap<>();
-        errorMap.put("code", code);
-        errorMap.put("details", details);
-        return errorMap;
+    // State of an asynchronous delete, written by the job thread only
+    private static final class DeletionJob {
+        private final String jobId;
+        private final long categoryId;
+        private volatile String state = "RUNNING";
+        private volatile long productsDeleted;
+        private volatile String error;
+
+        private DeletionJob(String jobId, long categoryId) {
+            this.jobId = jobId;
+            this.categoryId = categoryId;
+        }
+
+        private CategoryDeletionStatus status() {
+            return new CategoryDeletionStatus(jobId, categoryId, state, productsDeleted, error);
+        }
     }
 }
@@ -0,0 +1,78 @@
+package com.task.services;
+
+import com.task.dto.CategoryTotals;
+import com.task.entities.CategoryStats;
+import com.task.repositories.CategoryRepo;
+import com.task.repositories.CategoryStatsRepo;
+import com.task.repositories.ProductRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Recomputes category_stats from the products. The services keep the totals exact, this catches what they cannot
+// see: rows changed outside the application and the rounding drift of the summed stock values.
+@Component
+public class CategoryStatsReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryStatsReconciler.class);
+
+    // Differences of the summed stock value below this are rounding, not drift
+    private static final double VALUE_TOLERANCE = 0.005;
+
+    private final CategoryRepo categoryRepo;
+    private final CategoryStatsRepo categoryStatsRepo;
+    private final ProductRepo productRepo;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public CategoryStatsReconciler(CategoryRepo categoryRepo, CategoryStatsRepo categoryStatsRepo, ProductRepo productRepo,
+                                   TransactionTemplate transactionTemplate) {
+        this.categoryRepo = categoryRepo;
+        this.categoryStatsRepo = categoryStatsRepo;
+        this.productRepo = productRepo;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // One short transaction per category, a product write waits at most for the reconciliation of its own category.
+    // Returns the number of categories whose totals were corrected.
+    @Scheduled(fixedDelayString = "${app.category-stats.reconcile-interval}",
+            initialDelayString = "${app.category-stats.reconcile-interval}")
+    public int reconcileAll() {
+        int corrected = 0;
+        for (long categoryId : categoryRepo.findAllIds()) {
+            try {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> reconcile(categoryId)))) {
+                    corrected++;
+                }
+            } catch (Exception e) {
+                log.error("reconcileAll >> failed for category : {}", categoryId, e);
+            }
+        }
+        if (corrected > 0) {
+            log.warn("reconcileAll >> corrected the totals of {} categories", corrected);
+        }
+        return corrected;
+    }
+
+    // The stats row is locked before the products are summed: a product write that has not reached its totals
+    // update yet waits for this transaction, then applies its change on top of the recomputed totals
+    private boolean reconcile(long categoryId) {
+        CategoryStats stats = categoryStatsRepo.findForUpdate(categoryId).orElse(null);
+        CategoryTotals totals = productRepo.sumByCategoryId(categoryId);
+
+        if (stats == null) {
+            stats = new CategoryStats(categoryId);
+        } else if (stats.getProductCount() == totals.productCount() && stats.getTotalQuantity() == totals.totalQuantity()
+                && Math.abs(stats.getStockValue() - totals.stockValue()) < VALUE_TOLERANCE) {
+            return false;
+        }
+        stats.setProductCount(totals.productCount());
+        stats.setTotalQuantity(totals.totalQuantity());
+        stats.setStockValue(totals.stockValue());
+        categoryStatsRepo.save(stats);
+        return true;
+    }
+}
@@ -0,0 +1,27 @@
+package com.task.services;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+// Maps a failed write to the database constraint that rejected it, the uniqueness checks are left to the schema
+final class ConstraintViolations {
+
+    static final String UK_PRODUCT_NAME = "uk_products_product_name";
+    static final String UK_CATEGORY_NAME = "uk_categories_category_name";
+
+    private ConstraintViolations() {
+    }
+
+    // MySQL reports the constraint name as declared, H2 upper-cases it and may append the index details
+    static boolean isViolationOf(DataIntegrityViolationException e, String constraintName) {
+        Throwable cause = e.getCause();
+        while (cause != null && !(cause instanceof ConstraintViolationException)) {
+            cause = cause.getCause();
+        }
+        if (cause == null || ((ConstraintViolationException) cause).getConstraintName() == null) {
+            return false;
+        }
+        String violated = ((ConstraintViolationException) cause).getConstraintName().toLowerCase();
+        return violated.contains(constraintName);
+    }
+}
@@ -0,0 +1,117 @@
+package com.task.services;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+
+// Strong entity tags for the conditional requests. They are built from ids and @Version values only,
+// so the services can compute them from a projection query as well as from the loaded entities.
+final class ETags {
+
+    private ETags() {
+    }
+
+    // The version lookup is only worth its query when the client can be answered with a 304
+    static boolean isConditional(WebRequest webRequest) {
+        return webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || webRequest.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    // List pages only carry an ETag
+    static boolean hasIfNoneMatch(WebRequest webRequest) {
+        return webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null;
+    }
+
+    // Tag of a single resource: its id followed by the versions it depends on, e.g. "12-3-1"
+    static String of(long id, long... versions) {
+        return "\"" + versionKey(id, versions) + "\"";
+    }
+
+    // Versions carried by an If-Match tag of the resource with this id, null when the header holds no such tag
+    static long[] versionsOf(String ifMatch, long id) {
+        if (ifMatch == null) {
+            return null;
+        }
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.length() < 2 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+                continue;   // weak tags never match an If-Match
+            }
+            String[] parts = tag.substring(1, tag.length() - 1).split("-");
+            try {
+                if (parts.length < 2 || Long.parseLong(parts[0]) != id) {
+                    continue;
+                }
+                long[] versions = new long[parts.length - 1];
+                for (int i = 1; i < parts.length; i++) {
+                    versions[i - 1] = Long.parseLong(parts[i]);
+                }
+                return versions;
+            } catch (NumberFormatException e) {
+                // not one of our tags
+            }
+        }
+        return null;
+    }
+
+    // Tag of a list page: a digest of the tags of its rows and of whether another page follows
+    static Page page() {
+        return new Page();
+    }
+
+    // Tag of a page of another representation of the same rows (a ?fields= selection), null for the default one
+    static Page page(String variant) {
+        Page page = new Page();
+        if (variant != null) {
+            page.digest.update(variant.getBytes(StandardCharsets.UTF_8));
+            page.digest.update((byte) ';');
+        }
+        return page;
+    }
+
+    // Last-Modified of a single resource, the most recent of the modification times it depends on
+    static long lastModified(Instant... modified) {
+        long lastModified = -1;
+        for (Instant instant : modified) {
+            lastModified = Math.max(lastModified, instant.toEpochMilli());
+        }
+        return lastModified;
+    }
+
+    private static String versionKey(long id, long... versions) {
+        StringBuilder key = new StringBuilder().append(id);
+        for (long version : versions) {
+            key.append('-').append(version);
+        }
+        return key.toString();
+    }
+
+    static final class Page {
+
+        private final MessageDigest digest;
+
+        private Page() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        Page add(long id, long... versions) {
+            digest.update(versionKey(id, versions).getBytes(StandardCharsets.US_ASCII));
+            digest.update((byte) ',');
+            return this;
+        }
+
+        String build(boolean hasNext) {
+            digest.update((byte) (hasNext ? 1 : 0));
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.task.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The ?fields= parameter of the list endpoints, e.g. "productId,productName,price"
+final class FieldSelection {
+
+    private FieldSelection() {
+    }
+
+    // Field names in the requested order without duplicates, throws IllegalArgumentException on an unknown
+    // or empty selection
+    static List<String> parse(String fields, List<String> selectable) {
+        List<String> selected = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            field = field.trim();
+            if (field.isEmpty() || selected.contains(field)) {
+                continue;
+            }
+            if (!selectable.contains(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field + ". Selectable fields are "
+                        + String.join(", ", selectable) + ".");
+            }
+            selected.add(field);
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("At least one field is required.");
+        }
+        return List.copyOf(selected);
+    }
+}
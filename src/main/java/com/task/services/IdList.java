@@ -0,0 +1,38 @@
+package com.task.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The ?ids= parameter of the multi-get endpoints, e.g. "12,7,31"
+final class IdList {
+
+    // Upper bound on the number of ids of a single multi-get
+    static final int MAX_IDS = 100;
+
+    private IdList() {
+    }
+
+    // Ids in the requested order, duplicates kept so every position gets its item. Throws IllegalArgumentException
+    // on an id that is not a number, an empty list or more than MAX_IDS ids.
+    static List<Long> parse(String ids) {
+        List<Long> parsed = new ArrayList<>();
+        for (String id : ids.split(",")) {
+            id = id.trim();
+            if (id.isEmpty()) {
+                continue;
+            }
+            try {
+                parsed.add(Long.parseLong(id));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid id: " + id + ".");
+            }
+            if (parsed.size() > MAX_IDS) {
+                throw new IllegalArgumentException("At most " + MAX_IDS + " ids are allowed per request.");
+            }
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("At least one id is required.");
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,21 @@
+package com.task.services;
+
+import com.task.dto.ProductIndexEntry;
+
+import java.util.List;
+
+// Writes that change what the text index holds, published by the services and applied by ProductIndexer once
+// their transaction has committed (right away without one), so a rolled back write never reaches the index
+sealed interface ProductIndexEvent {
+
+    // Products written with their indexed columns at hand
+    record Upsert(List<ProductIndexEntry> products) implements ProductIndexEvent {
+    }
+
+    // Products changed by a bulk UPDATE, their indexed columns are read back
+    record Reload(List<Long> productIds) implements ProductIndexEvent {
+    }
+
+    record Delete(List<Long> productIds) implements ProductIndexEvent {
+    }
+}
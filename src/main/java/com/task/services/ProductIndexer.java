@@ -0,0 +1,163 @@
+package com.task.services;
+
+import com.task.config.TextSearchProperties;
+import com.task.dto.ProductIndexEntry;
+import com.task.repositories.ProductRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Keeps ProductTextIndex in sync with the products table. Every write is applied incrementally from the
+// ProductIndexEvent of the service that made it, and is searchable after the next background reopen. A full rebuild
+// runs before the web server takes requests when the index needs one (see TextSearchProperties.Rebuild).
+// The index is local to the instance: writes served by other instances only show up after its next rebuild.
+@Component
+public class ProductIndexer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductIndexer.class);
+
+    // Reloaded products are read with IN queries of at most this many ids
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1_000;
+
+    private final ProductTextIndex index;
+    private final ProductRepo productRepo;
+    private final TextSearchProperties properties;
+    private volatile boolean running;
+
+    @Autowired
+    public ProductIndexer(ProductTextIndex index, ProductRepo productRepo, TextSearchProperties properties) {
+        this.index = index;
+        this.productRepo = productRepo;
+        this.properties = properties;
+    }
+
+    // The write is already committed, a failure here must not fail the request: the index stays behind
+    // until the next rebuild and the error is logged
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductIndexEvent(ProductIndexEvent event) {
+        try {
+            if (event instanceof ProductIndexEvent.Upsert upsert) {
+                index.index(upsert.products());
+            } else if (event instanceof ProductIndexEvent.Reload reload) {
+                reload(reload.productIds());
+            } else if (event instanceof ProductIndexEvent.Delete delete) {
+                index.delete(delete.productIds());
+            }
+        } catch (Exception e) {
+            log.error("onProductIndexEvent >> failed to apply {}", event, e);
+        }
+    }
+
+    private void reload(List<Long> productIds) throws IOException {
+        Set<Long> missing = new HashSet<>(productIds);
+        for (int from = 0; from < productIds.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<Long> chunk = productIds.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, productIds.size()));
+            List<ProductIndexEntry> products = productRepo.findIndexEntries(chunk);
+            products.forEach(p -> missing.remove(p.productId()));
+            index.index(products);
+        }
+        index.delete(missing);   // deleted in the meantime
+    }
+
+    // Rebuilds the whole index from the table: the id range is split into batches of rebuildBatchSize ids that
+    // rebuildThreads workers read and index in parallel (IndexWriter takes documents from several threads at once).
+    // Returns the number of products indexed.
+    public long rebuild() throws IOException {
+        long start = System.nanoTime();
+        index.deleteAll();
+
+        Long minId = productRepo.findMinProductId();
+        Long maxId = productRepo.findMaxProductId();
+        long indexed = 0;
+        if (minId != null) {
+            ExecutorService workers = Executors.newFixedThreadPool(properties.rebuildThreads());
+            try {
+                List<Future<Integer>> batches = new ArrayList<>();
+                for (long from = minId; from <= maxId; from += properties.rebuildBatchSize()) {
+                    long fromId = from;
+                    long toId = Math.min(maxId, from + properties.rebuildBatchSize() - 1);
+                    batches.add(workers.submit(() -> {
+                        List<ProductIndexEntry> products = productRepo.findIndexEntriesBetween(fromId, toId);
+                        index.add(products);
+                        return products.size();
+                    }));
+                }
+                for (Future<Integer> batch : batches) {
+                    indexed += batch.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Text index rebuild interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException("Text index rebuild failed", e.getCause());
+            } finally {
+                workers.shutdownNow();
+            }
+        }
+
+        index.commit();
+        index.refresh();
+        log.info("rebuild >> {} products indexed in {} ms", indexed, (System.nanoTime() - start) / 1_000_000);
+        return indexed;
+    }
+
+    // Runs before the web server starts (it is started in a later phase), so no write can race the rebuild
+    @Override
+    public void start() {
+        boolean rebuild = switch (properties.rebuild()) {
+            case ALWAYS -> true;
+            case IF_NEEDED -> !index.isCurrent();
+            case NEVER -> false;
+        };
+        if (rebuild) {
+            try {
+                rebuild();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            log.info("start >> text index is current, {} products", size());
+        }
+        running = true;
+    }
+
+    private int size() {
+        try {
+            return index.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
@@ -1,274 +1,1076 @@
 package com.task.services;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.task.config.ReadCoalescingProperties;
+import com.task.dto.ApiResponse;
+import com.task.dto.BatchItemResult;
+import com.task.dto.FieldRow;
+import com.task.dto.ProductIndexEntry;
+import com.task.dto.KeysetResponse;
+import com.task.dto.MultiGetItem;
+import com.task.dto.ProductPatch;
+import com.task.dto.ProductSearch;
+import com.task.dto.ProductVersion;
+import com.task.dto.StockChange;
+import com.task.dto.TextSearchHit;
 import com.task.entities.Category;
 import com.task.entities.Product;
 import com.task.repositories.CategoryRepo;
+import com.task.repositories.CategoryStatsRepo;
 import com.task.repositories.ProductRepo;
+import com.task.repositories.ProductSpecifications;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Service
 public class ProductService {
 
+    private static final Logger log = LoggerFactory.getLogger(ProductService.class);
+
+    // Upper bound on the number of products accepted by a single batch request
+    private static final int MAX_BATCH_SIZE = 50_000;
+    // Names are checked for uniqueness with IN queries of at most this many parameters
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1_000;
+    // Persisted products are flushed (as JDBC batches of hibernate.jdbc.batch_size) and detached every this many rows
+    private static final int FLUSH_CHUNK_SIZE = 1_000;
+    // Columns a search can be sorted on
+    private static final List<String> SEARCH_SORT_FIELDS = List.of("productId", "productName", "price", "quantity");
+    // Upper bound on the number of hits of a text search
+    private static final int MAX_TEXT_SEARCH_LIMIT = 100;
+    // Order of the offset pages. The page and the versions behind its ETag are read by separate queries, both have
+    // to see the same rows in the same order.
+    private static final Sort PAGE_ORDER = Sort.by("productId");
+
+    // Fixed responses, built once and shared by every request
+    private static final ApiResponse<Void> PRODUCT_DELETED = ApiResponse.ok("Product deleted successfully");
+    private static final ApiResponse<Void> PRODUCT_UPDATED = ApiResponse.ok("Product updated successfully");
+    private static final ApiResponse<Void> STOCK_RESERVED = ApiResponse.ok("Stock reserved successfully");
+    private static final ApiResponse<Void> STOCK_RELEASED = ApiResponse.ok("Stock released successfully");
+    private static final ApiResponse<Void> CATEGORY_NOT_FOUND = ApiResponse.error(400, "Product category not found in the system.");
+    private static final ApiResponse<Void> CATEGORY_REQUIRED = ApiResponse.error(400, "Product category is required.");
+    private static final ApiResponse<Void> EMPTY_BATCH = ApiResponse.error(400, "At least one product is required.");
+    private static final ApiResponse<Void> BATCH_TOO_LARGE = ApiResponse.error(400, "A batch can contain at most " + MAX_BATCH_SIZE + " products.");
+    private static final ApiResponse<Void> INVALID_CURSOR = ApiResponse.error(400, "Invalid cursor.");
+    private static final ApiResponse<Void> INVALID_PAGE_SIZE = ApiResponse.error(400, "Page size must be greater than 0.");
+    private static final ApiResponse<Void> INVALID_STOCK_QUANTITY = ApiResponse.error(400, "Stock quantity must be greater than 0.");
+    private static final ApiResponse<Void> INVALID_TEXT_SEARCH_LIMIT = ApiResponse.error(400, "Limit must be between 1 and " + MAX_TEXT_SEARCH_LIMIT + ".");
+    private static final ApiResponse<Void> PRODUCT_NAME_EXISTS = ApiResponse.error(400, "Product name already exists.");
+    private static final ApiResponse<Void> SEARCH_TEXT_REQUIRED = ApiResponse.error(400, "Search text is required.");
+    private static final ApiResponse<Void> UNREADABLE_BODY = ApiResponse.error(400, "Unable to read the request body.");
+    private static final ApiResponse<Void> NO_PRODUCTS_FOUND = ApiResponse.error(404, "No products found in the system.");
+    private static final ApiResponse<Void> PRODUCT_NOT_FOUND = ApiResponse.error(404, "Product not found in the system.");
+    private static final ApiResponse<Void> CONCURRENT_UPDATE = ApiResponse.error(409, "Product was modified concurrently, fetch it again before updating.");
+    private static final ApiResponse<Void> INSUFFICIENT_STOCK = ApiResponse.error(409, "Insufficient stock.");
+    private static final ApiResponse<Void> VERSION_MISMATCH = ApiResponse.error(412, "Product has been modified, fetch it again before updating.");
+    private static final ApiResponse<Void> IF_MATCH_REQUIRED = ApiResponse.error(428, "If-Match with the ETag of the product is required.");
+    private static final ApiResponse<Void> ADD_FAILED = ApiResponse.error(500, "An error occurred while adding the product.");
+    private static final ApiResponse<Void> BATCH_ADD_FAILED = ApiResponse.error(500, "An error occurred while adding the products.");
+    private static final ApiResponse<Void> DELETE_FAILED = ApiResponse.error(500, "An error occurred while deleting the product.");
+    private static final ApiResponse<Void> FETCH_ALL_FAILED = ApiResponse.error(500, "An error occurred while fetching products.");
+    private static final ApiResponse<Void> FETCH_FAILED = ApiResponse.error(500, "An error occurred while fetching a product.");
+    private static final ApiResponse<Void> RELEASE_FAILED = ApiResponse.error(500, "An error occurred while releasing stock.");
+    private static final ApiResponse<Void> RESERVE_FAILED = ApiResponse.error(500, "An error occurred while reserving stock.");
+    private static final ApiResponse<Void> TEXT_SEARCH_FAILED = ApiResponse.error(500, "An error occurred while searching products.");
+    private static final ApiResponse<Void> UPDATE_FAILED = ApiResponse.error(500, "An error occurred while updating the product.");
+
     private ProductRepo productRepo;
     private CategoryRepo categoryRepo;
+    private CategoryStatsRepo categoryStatsRepo;
+    private StockAggregator stockAggregator;
+    private ProductTextIndex productTextIndex;
+    private ApplicationEventPublisher eventPublisher;
+    private ObjectReader productReader;
+    private ObjectWriter productWriter;
+    private JsonFactory jsonFactory;
+    private ObjectWriter responseWriter;
+    private TransactionTemplate readOnlyTransaction;
+    private SingleFlight<Long, ResponseEntity<?>> productReads;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
+    // Own proxy, an NDJSON ingestion starts its transaction only once the whole body has been read
     @Autowired
-    public ProductService(ProductRepo productRepo, CategoryRepo categoryRepo) {
+    @Lazy
+    private ProductService self;
+
+    @Autowired
+    public ProductService(ProductRepo productRepo, CategoryRepo categoryRepo, CategoryStatsRepo categoryStatsRepo,
+                          StockAggregator stockAggregator, ProductTextIndex productTextIndex,
+                          ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper,
+                          TransactionTemplate transactionTemplate, ReadCoalescingProperties readCoalescingProperties) {
         this.productRepo = productRepo;
         this.categoryRepo = categoryRepo;
+        this.categoryStatsRepo = categoryStatsRepo;
+        this.stockAggregator = stockAggregator;
+        this.productTextIndex = productTextIndex;
+        this.eventPublisher = eventPublisher;
+        this.productReader = objectMapper.readerFor(Product.class);
+        this.productWriter = objectMapper.writerFor(Product.class).withRootValueSeparator("\n");
+        this.jsonFactory = objectMapper.getFactory();
+        this.responseWriter = objectMapper.writerFor(ApiResponse.class);
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.productReads = new SingleFlight<>(readCoalescingProperties.ttl(), readCoalescingProperties.maximumSize());
     }
 
+    @Transactional(readOnly = true)
     public ResponseEntity<?> getAllProducts(int page, int size) {
-        System.out.println("getAllProducts >> page : " + page + " & size : " + size);
-        Map<String, Object> response = new HashMap<>();
-
+        log.debug("getAllProducts >> page : {} & size : {}", page, size);
         try {
-            Pageable pageable = PageRequest.of(page, size);
-            Page<Product> pageProducts = productRepo.findAll(pageable);
+            Pageable pageable = PageRequest.of(page, size, PAGE_ORDER);
+            Slice<Product> pageProducts = productRepo.findAllBy(pageable);
 
             if (pageProducts.isEmpty()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "No products found in the system."));
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(NO_PRODUCTS_FOUND);
             }
 
-            response.put("success", true);
-            response.put("message", "Request successful");
-            response.put("data", pageProducts.get());   // to get categories only and not include pagination metadata
+            ETags.Page etag = ETags.page();
+            pageProducts.forEach(p -> etag.add(p.getProductId(), p.getVersion(), p.getCategory().getVersion()));
 
-            return ResponseEntity.status(HttpStatus.OK).body(response);
+            // the content only, not the pagination metadata
+            return ResponseEntity.status(HttpStatus.OK).eTag(etag.build(pageProducts.hasNext()))
+                    .body(ApiResponse.ok("Request successful", pageProducts.getContent()));
 
         } catch (Exception e) {
-            e.printStackTrace();
-            response.put("success", false);
-            response.put("error", createErrorMap(500, "An error occurred while fetching products."));
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            log.error("getAllProducts >> failed", e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(FETCH_ALL_FAILED);
         }
     }
 
-    public ResponseEntity<?> addProduct(Product product) {
+    // Keyset paginated listing, the cost of a page does not depend on how deep the client has scrolled
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getProductsAfter(String after, int size) {
+        log.debug("getProductsAfter >> after : {} & size : {}", after, size);
+        try {
+            if (size <= 0) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(INVALID_PAGE_SIZE);
+            }
+
+            long lastId;
+            try {
+                lastId = SeekCursor.decode(after);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(INVALID_CURSOR);
+            }
+
+            // fetch one extra row to know whether another page exists
+            List<Product> products = productRepo.findByProductIdGreaterThanOrderByProductIdAsc(lastId, Limit.of(size + 1));
+
+            if (products.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(NO_PRODUCTS_FOUND);
+            }
+
+            String nextCursor = null;
+            if (products.size() > size) {
+                products = products.subList(0, size);
+                nextCursor = SeekCursor.encode(products.get(size - 1).getProductId());
+            }
+
+            ETags.Page etag = ETags.page();
+            products.forEach(p -> etag.add(p.getProductId(), p.getVersion(), p.getCategory().getVersion()));
 
-        System.out.println("addProduct >> product : \n" + product);
+            return ResponseEntity.status(HttpStatus.OK).eTag(etag.build(nextCursor != null))
+                    .body(KeysetResponse.of(products, nextCursor));
 
-        Map<String, Object> response = new HashMap<>();
+        } catch (Exception e) {
+            log.error("getProductsAfter >> failed", e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(FETCH_ALL_FAILED);
+        }
+    }
 
+    // Multi-get (?ids=12,7,31): the products of the list and their categories in one IN query, returned in request
+    // order with a 404 item for every id that does not exist
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getProductsByIds(String ids) {
+        log.debug("getProductsByIds >> ids : {}", ids);
         try {
-            // Input validation
-            if (product.getProductName() == null || product.getProductName().isEmpty()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "Product name is required."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            List<Long> idList;
+            try {
+                idList = IdList.parse(ids);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(400, e.getMessage()));
+            }
+
+            Map<Long, Product> products = new HashMap<>();
+            for (Product product : productRepo.findByProductIdIn(new HashSet<>(idList))) {
+                products.put(product.getProductId(), product);
+            }
+
+            List<MultiGetItem<Product>> items = new ArrayList<>(idList.size());
+            for (Long id : idList) {
+                Product product = products.get(id);
+                items.add(product != null ? MultiGetItem.found(id, product) : MultiGetItem.missing(id, PRODUCT_NOT_FOUND.error().details()));
+            }
+            return ResponseEntity.status(HttpStatus.OK).body(ApiResponse.ok("Request successful", items));
+
+        } catch (Exception e) {
+            log.error("getProductsByIds >> failed", e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(FETCH_ALL_FAILED);
+        }
+    }
+
+    // Page of the selected fields only (?fields=productId,productName,price). The SELECT reads those columns plus the
+    // row key behind the ETag, as tuples: no entity is built. Offset paged, or keyset paged when after is supplied.
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> getProductFields(int page, int size, String after, String fields) {
+        log.debug("getProductFields >> page : {} & size : {} & after : {} & fields : {}", page, size, after, fields);
+
+        try {
+            List<String> selected;
+            try {
+                selected = FieldSelection.parse(fields, ProductRepo.SELECTABLE_FIELDS);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(400, e.getMessage()));
+            }
+            if (size <= 0) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(INVALID_PAGE_SIZE);
+            }
+            ETags.Page etag = ETags.page(String.join(",", selected));
+
+            if (after == null) {
+                Slice<FieldRow> rows = productRepo.findFieldsBy(selected, PageRequest.of(page, size, PAGE_ORDER));
+                if (rows.isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(NO_PRODUCTS_FOUND);
+                }
+                rows.forEach(row -> etag.add(row.id(), row.versions()));
+                return ResponseEntity.status(HttpStatus.OK).eTag(etag.build(rows.hasNext()))
+                        .body(ApiResponse.ok("Request successful", rows.getContent()));
+            }
+
+            long lastId;
+            try {
+                lastId = SeekCursor.decode(after);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(INVALID_CURSOR);
+            }
+
+            List<FieldRow> rows = productRepo.findFieldsAfter(selected, lastId, Limit.of(size + 1));
+            if (rows.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(NO_PRODUCTS_FOUND);
+            }
+
+            String nextCursor = null;
+            if (rows.size() > size) {
+                rows = rows.subList(0, size);
+                nextCursor = SeekCursor.encode(rows.get(size - 1).id());
+            }
+            rows.forEach(row -> etag.add(row.id(), row.versions()));
+            return ResponseEntity.status(HttpStatus.OK).eTag(etag.build(nextCursor != null))
+                    .body(KeysetResponse.of(rows, nextCursor));
+
+        } catch (Exception e) {
+            log.error("getProductFields >> failed", e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(FETCH_ALL_FAILED);
+        }
+    }
+
+    // Products filtered by category, price range, stock and name prefix, sorted on a whitelisted column. One of the
+    // indexed filters (category, price, name prefix) is required, so that no search has to scan the whole table.
+    @Transactional(readOnly = true)
+    public ResponseEntity<?> searchProducts(ProductSearch search, int page, int size) {
+        log.debug("searchProducts >> search : {} & page : {} & size : {}", search, page, size);
+
+        try {
+            String validationError = validateSearch(search, page, size);
+            if (validationError != null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(400, validationError));
+            }
+
+            Sort sort;
+            try {
+                sort = searchSort(search.sort());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(400, e.getMessage()));
+            }
+
+            Slice<Product> products = productRepo.search(searchSpecification(search), PageRequest.of(page, size, sort));
+
+            if (products.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(NO_PRODUCTS_FOUND);
+            }
+
+            return ResponseEntity.status(HttpStatus.OK).body(ApiResponse.ok("Request successful", products.getContent()));
+
+        } catch (Exception e) {
+            log.error("searchProducts >> failed", e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(FETCH_ALL_FAILED);
+        }
+    }
+
+    // Typo-tolerant prefix and keyword search over the names and descriptions, answered by ProductTextIndex with
+    // the best matches first. An empty result is a 200 with no hits, unlike the listings.
+    public ResponseEntity<?> searchProductsText(String text, int limit) {
+        log.debug("searchProductsText >> text : {} & limit : {}", text, limit);
+
+        try {
+            if (text == null || text.isBlank()) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(SEARCH_TEXT_REQUIRED);
             }
-            if (product.getDescription() == null || product.getDescription().isEmpty()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "Product description is required."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            if (limit <= 0 || limit > MAX_TEXT_SEARCH_LIMIT) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(INVALID_TEXT_SEARCH_LIMIT);
             }
-            if (product.getPrice() <= 0) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "Product price must be greater than 0."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+
+            List<TextSearchHit> hits = productTextIndex.search(text, limit);
+
+            return ResponseEntity.status(HttpStatus.OK).body(ApiResponse.ok("Request successful", hits));
+
+        } catch (Exception e) {
+            log.error("searchProductsText >> failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(TEXT_SEARCH_FAILED);
+        }
+    }
+
+    // Conditional GET of a page (If-None-Match only, a removed row would not move a Last-Modified date).
+    // Returns true when a 304 has been prepared on the request, the page then does not need to be loaded.
+    @Transactional(readOnly = true)
+    public boolean isProductPageNotModified(int page, int size, WebRequest webRequest) {
+        return isProductPageNotModified(page, size, null, webRequest);
+    }
+
+    // Keyset counterpart of isProductPageNotModified
+    @Transactional(readOnly = true)
+    public boolean isProductPageAfterNotModified(String after, int size, WebRequest webRequest) {
+        return isProductPageAfterNotModified(after, size, null, webRequest);
+    }
+
+    // Conditional GET of a ?fields= page, the same versions with the selected fields as part of the tag
+    @Transactional(readOnly = true)
+    public boolean isProductFieldsPageNotModified(int page, int size, String after, String fields, WebRequest webRequest) {
+        List<String> selected;
+        try {
+            selected = FieldSelection.parse(fields, ProductRepo.SELECTABLE_FIELDS);
+        } catch (IllegalArgumentException e) {
+            return false;   // rejected with a 400 by getProductFields
+        }
+        String variant = String.join(",", selected);
+        return after == null
+                ? isProductPageNotModified(page, size, variant, webRequest)
+                : isProductPageAfterNotModified(after, size, variant, webRequest);
+    }
+
+    private boolean isProductPageNotModified(int page, int size, String variant, WebRequest webRequest) {
+        if (!ETags.hasIfNoneMatch(webRequest) || page < 0 || size <= 0) {
+            return false;
+        }
+        try {
+            Slice<ProductVersion> versions = productRepo.findVersionsBy(PageRequest.of(page, size, PAGE_ORDER));
+            if (versions.isEmpty()) {
+                return false;
             }
-            if (product.getQuantity() <= 0) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "Product quantity must be greater than 0."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            ETags.Page etag = ETags.page(variant);
+            versions.forEach(v -> etag.add(v.productId(), v.version(), v.categoryVersion()));
+            return webRequest.checkNotModified(etag.build(versions.hasNext()));
+
+        } catch (Exception e) {
+            log.warn("isProductPageNotModified >> version lookup failed, serving the full page", e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return false;
+        }
+    }
+
+    private boolean isProductPageAfterNotModified(String after, int size, String variant, WebRequest webRequest) {
+        if (!ETags.hasIfNoneMatch(webRequest) || size <= 0) {
+            return false;
+        }
+        long lastId;
+        try {
+            lastId = SeekCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            return false;   // rejected with a 400 by getProductsAfter
+        }
+        try {
+            List<ProductVersion> versions = productRepo.findVersionsAfter(lastId, Limit.of(size + 1));
+            if (versions.isEmpty()) {
+                return false;
             }
+            ETags.Page etag = ETags.page(variant);
+            versions.stream().limit(size).forEach(v -> etag.add(v.productId(), v.version(), v.categoryVersion()));
+            return webRequest.checkNotModified(etag.build(versions.size() > size));
+
+        } catch (Exception e) {
+            log.warn("isProductPageAfterNotModified >> version lookup failed, serving the full page", e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return false;
+        }
+    }
 
-            Optional<Product> existingProductOptional = productRepo.findByProductName(product.getProductName());
-            if (existingProductOptional.isPresent()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "Product name already exists."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    // The insert and the category totals (category_stats) commit together
+    @Transactional
+    public ResponseEntity<?> addProduct(Product product) {
+
+        log.debug("addProduct >> productName : {}", product.getProductName());
+
+        try {
+            // Input validation
+            String validationError = validateProduct(product);
+            if (validationError != null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(400, validationError));
             }
 
             // Fetch the category by ID
             Optional<Category> categoryOptional = categoryRepo.findById(product.getCategory().getCategoryId());
             if (categoryOptional.isEmpty()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "Product category not found in the system."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(CATEGORY_NOT_FOUND);
             }
 
+            // Name uniqueness is enforced by uk_products_product_name, flushed here so a duplicate surfaces as a 400
             product.setCategory(categoryOptional.get());
-            Product savedProduct = productRepo.save(product);
+            Product savedProduct = productRepo.saveAndFlush(product);
+            categoryStatsRepo.add(savedProduct.getCategory().getCategoryId(), 1, savedProduct.getQuantity(), stockValueOf(savedProduct));
+            eventPublisher.publishEvent(new ProductIndexEvent.Upsert(List.of(indexEntryOf(savedProduct))));
 
-            response.put("success", true);
-            response.put("message", "Product added successfully");
-            response.put("data", savedProduct);
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.ok("Product added successfully", savedProduct));
 
+        } catch (DataIntegrityViolationException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            if (!ConstraintViolations.isViolationOf(e, ConstraintViolations.UK_PRODUCT_NAME)) {
+                log.error("addProduct >> failed", e);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ADD_FAILED);
+            }
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(PRODUCT_NAME_EXISTS);
         } catch (Exception e) {
-            e.printStackTrace();
-            response.put("success", false);
-            response.put("error", createErrorMap(500, "An error occurred while adding the product."));
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            log.error("addProduct >> failed", e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ADD_FAILED);
         }
 
     }
 
 
-    public ResponseEntity<?> getProduct(Long id) {
-        System.out.println("getProduct >> id :: " + id);
-        Map<String, Object> response = new HashMap<>();
+    // Bulk ingestion of a JSON array, see ingestProducts
+    @Transactional
+    public ResponseEntity<?> addProducts(List<Product> products) {
+        return ingestProducts(products == null ? List.of() : products, Map.of());
+    }
 
+    // Bulk ingestion of an NDJSON stream (one product per line), lines that are not valid JSON are reported per item.
+    // The body is read outside the transaction, a slow upload does not hold a pooled connection.
+    public ResponseEntity<?> addProductsNdjson(InputStream body) {
+        List<Product> products = new ArrayList<>();
+        Map<Integer, String> parseErrors = new HashMap<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (products.size() == MAX_BATCH_SIZE) {
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(BATCH_TOO_LARGE);
+                }
+                try {
+                    products.add(productReader.readValue(line));
+                } catch (JsonProcessingException e) {
+                    parseErrors.put(products.size(), "Invalid JSON.");
+                    products.add(null);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("addProductsNdjson >> unable to read the request body", e);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(UNREADABLE_BODY);
+        }
+
+        return self.ingestProducts(products, parseErrors);
+    }
+
+    // Validates the whole batch in memory, resolves categories and name uniqueness with set-based queries
+    // and inserts the valid products through JDBC batching. Each item gets its own result, in input order.
+    @Transactional
+    ResponseEntity<?> ingestProducts(List<Product> products, Map<Integer, String> parseErrors) {
+        log.debug("ingestProducts >> products : {}", products.size());
         try {
-            // Fetch the category by ID
-            Optional<Product> productOptional = productRepo.findById(id);
+            if (products.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(EMPTY_BATCH);
+            }
+            if (products.size() > MAX_BATCH_SIZE) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(BATCH_TOO_LARGE);
+            }
 
-            if (productOptional.isEmpty()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(404, "Product not found in the system."));
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            String[] errors = new String[products.size()];
+            parseErrors.forEach((index, error) -> errors[index] = error);
+
+            // In-memory validation
+            Set<Long> categoryIds = new HashSet<>();
+            Set<String> productNames = new HashSet<>();
+            for (int i = 0; i < products.size(); i++) {
+                if (errors[i] != null) {
+                    continue;
+                }
+                Product product = products.get(i);
+                errors[i] = validateProduct(product);
+                if (errors[i] == null && product.getCategory() == null) {
+                    errors[i] = "Product category is required.";
+                }
+                if (errors[i] == null) {
+                    categoryIds.add(product.getCategory().getCategoryId());
+                    productNames.add(product.getProductName());
+                }
             }
 
-            response.put("success", true);
-            response.put("message", "Request successful");
-            response.put("data", productOptional.get());
+            // Set-based lookups, one IN query per chunk instead of two queries per product
+            Map<Long, Category> categories = new HashMap<>();
+            for (Category category : categoryRepo.findAllById(categoryIds)) {
+                categories.put(category.getCategoryId(), category);
+            }
+            Set<String> existingNames = new HashSet<>();
+            List<String> names = new ArrayList<>(productNames);
+            for (int from = 0; from < names.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+                List<String> chunk = names.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, names.size()));
+                existingNames.addAll(productRepo.findExistingProductNames(chunk));
+            }
 
-            return ResponseEntity.status(HttpStatus.OK).body(response);
+            Set<String> batchNames = new HashSet<>();
+            for (int i = 0; i < products.size(); i++) {
+                if (errors[i] != null) {
+                    continue;
+                }
+                Product product = products.get(i);
+                Category category = categories.get(product.getCategory().getCategoryId());
+                if (category == null) {
+                    errors[i] = "Product category not found in the system.";
+                } else if (existingNames.contains(product.getProductName()) || !batchNames.add(product.getProductName())) {
+                    errors[i] = "Product name already exists.";
+                } else {
+                    product.setCategory(category);
+                }
+            }
+
+            // Batched insert, the persistence context is flushed and cleared per chunk to keep memory flat
+            // and the second-level cache is bypassed so a large load does not evict the hot entries
+            entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+            int pending = 0;
+            for (int i = 0; i < products.size(); i++) {
+                if (errors[i] == null) {
+                    entityManager.persist(products.get(i));
+                    if (++pending % FLUSH_CHUNK_SIZE == 0) {
+                        entityManager.flush();
+                        entityManager.clear();
+                    }
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+
+            List<BatchItemResult> results = new ArrayList<>(products.size());
+            List<ProductIndexEntry> indexEntries = new ArrayList<>();
+            Map<Long, CategoryDelta> deltas = new HashMap<>();
+            for (int i = 0; i < products.size(); i++) {
+                if (errors[i] == null) {
+                    Product product = products.get(i);
+                    indexEntries.add(indexEntryOf(product));
+                    deltas.computeIfAbsent(product.getCategory().getCategoryId(), id -> new CategoryDelta()).add(product);
+                    results.add(BatchItemResult.created(i, product.getProductId()));
+                } else {
+                    results.add(BatchItemResult.rejected(i, errors[i]));
+                }
+            }
+            int created = indexEntries.size();
+
+            // one totals update per category of the batch
+            deltas.forEach((categoryId, delta) -> categoryStatsRepo.add(categoryId, delta.products, delta.quantity, delta.value));
+            eventPublisher.publishEvent(new ProductIndexEvent.Upsert(indexEntries));
+
+            String message = created + " of " + products.size() + " products added successfully";
+            return ResponseEntity.status(HttpStatus.OK).body(ApiResponse.ok(message, results));
 
         } catch (Exception e) {
-            e.printStackTrace();
-            response.put("success", false);
-            response.put("error", createErrorMap(500, "An error occurred while fetching a product."));
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            log.error("ingestProducts >> failed", e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(BATCH_ADD_FAILED);
         }
     }
 
-    public ResponseEntity<?> deleteProduct(Long id) {
-        System.out.println("deleteProduct >> product Id : " + id);
+    // Writes the whole catalog as NDJSON (one product per line) straight to the output stream. Each product is
+    // detached once written, so neither the persistence context nor the heap grow with the size of the table.
+    @Transactional(readOnly = true)
+    public void exportProducts(OutputStream out) throws IOException {
+        log.debug("exportProducts..");
+        long exported = 0;
 
-        Map<String, Object> response = new HashMap<>();
+        try (Stream<Product> products = productRepo.streamAllBy();
+             JsonGenerator generator = jsonFactory.createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+             SequenceWriter writer = productWriter.writeValues(generator)) {
+
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                Product product = iterator.next();
+                writer.write(product);
+                entityManager.detach(product);
+                exported++;
+            }
+            if (exported > 0) {
+                generator.writeRaw('\n');
+            }
+        }
+        log.info("exportProducts >> exported : {}", exported);
+    }
+
+    // Conditional GET of a product, answered from the product and category modification times.
+    // Returns true when a 304 has been prepared on the request, the product then does not need to be loaded.
+    @Transactional(readOnly = true)
+    public boolean isProductNotModified(Long id, WebRequest webRequest) {
+        if (!ETags.isConditional(webRequest)) {
+            return false;
+        }
+        try {
+            return productRepo.findVersionById(id)
+                    .map(v -> webRequest.checkNotModified(ETags.of(v.productId(), v.version(), v.categoryVersion()),
+                            ETags.lastModified(v.updatedAt(), v.categoryUpdatedAt())))
+                    .orElse(false);
+
+        } catch (Exception e) {
+            log.warn("isProductNotModified >> version lookup failed for id : {}, serving the full product", id, e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return false;
+        }
+    }
+
+    // Concurrent GETs of the same product share one load and one serialized response (see SingleFlight). The load
+    // runs in its own read-only transaction, so callers waiting on it hold no connection.
+    public ResponseEntity<?> getProduct(Long id) {
+        log.debug("getProduct >> id : {}", id);
+        try {
+            return productReads.get(id, () -> readOnlyTransaction.execute(status -> loadProduct(id)));
+
+        } catch (Exception e) {
+            log.error("getProduct >> failed for id : {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(FETCH_FAILED);
+        }
+    }
+
+    private ResponseEntity<?> loadProduct(Long id) {
+        Optional<Product> productOptional = productRepo.findById(id);
+
+        if (productOptional.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(PRODUCT_NOT_FOUND);
+        }
+
+        Product product = productOptional.get();
+
+        // written once here, every caller sharing the load gets the same bytes
+        byte[] body;
+        try {
+            body = responseWriter.writeValueAsBytes(ApiResponse.ok("Request successful", product));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize product " + id, e);
+        }
+
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etagOf(product))
+                .lastModified(ETags.lastModified(product.getUpdatedAt(), product.getCategory().getUpdatedAt()))
+                .body(body);
+    }
+
+    @Transactional
+    public ResponseEntity<?> deleteProduct(Long id) {
+        log.debug("deleteProduct >> id : {}", id);
+        productReads.invalidateAfterCommit(id);
 
         try {
             // Fetch the product by ID
             Optional<Product> productOptional = productRepo.findById(id);
-            System.out.println(productOptional);
             if (productOptional.isEmpty()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(404, "Product not found in the system."));
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(PRODUCT_NOT_FOUND);
             }
 
-            // Delete the category
+            // Delete the product, it comes out of the totals of its category in the same transaction
+            Product product = productOptional.get();
             productRepo.deleteById(id);
+            categoryStatsRepo.add(product.getCategory().getCategoryId(), -1, -product.getQuantity(), -stockValueOf(product));
+            eventPublisher.publishEvent(new ProductIndexEvent.Delete(List.of(id)));
 
-            response.put("success", true);
-            response.put("message", "Product deleted successfully");
-
-            return ResponseEntity.status(HttpStatus.OK).body(response);
+            return ResponseEntity.status(HttpStatus.OK).body(PRODUCT_DELETED);
 
         } catch (Exception e) {
-            e.printStackTrace();
-            response.put("success", false);
-            response.put("error", createErrorMap(500, "An error occurred while deleting the product."));
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            log.error("deleteProduct >> failed for id : {}", id, e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(DELETE_FAILED);
         }
 
     }
 
-    public ResponseEntity<?> updateProduct(Long id, Product product) {
+    // Full update. With If-Match the product must still be at the version of the tag (412 otherwise), without it a
+    // concurrent update between our read and our write is still detected through @Version (409).
+    @Transactional
+    public ResponseEntity<?> updateProduct(Long id, Product product, String ifMatch) {
 
-        System.out.println("updateProduct >> id : [" + id + "]\n" + product);
-
-        Map<String, Object> response = new HashMap<>();
+        log.debug("updateProduct >> id : {} & productName : {}", id, product.getProductName());
+        productReads.invalidateAfterCommit(id);
 
         try {
             // Input validation
-            if (product.getProductName() == null || product.getProductName().isEmpty()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "Product name is required."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-            }
-            if (product.getDescription() == null || product.getDescription().isEmpty()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "Product description is required."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-            }
-            if (product.getPrice() <= 0) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "Product price must be greater than 0."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-            }
-            if (product.getQuantity() <= 0) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "Product quantity must be greater than 0."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            String validationError = validateProduct(product);
+            if (validationError != null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(400, validationError));
             }
             if (product.getCategory() == null) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "Product category is required."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(CATEGORY_REQUIRED);
             }
 
-            // Check if the product with same name exists
-            Optional<Product> existingProductOptional = productRepo.findByProductName(product.getProductName());
-            if (existingProductOptional.isPresent() && existingProductOptional.get().getProductId() != id) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "Product name already exists."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            // Check if the product exists, its current category comes with it
+            Optional<Product> existingProductOptional = productRepo.findById(id);
+            if (existingProductOptional.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(PRODUCT_NOT_FOUND);
             }
+            Product updatedProduct = existingProductOptional.get();
 
-            // Check if the Category exists
-            Optional<Category> categoryOptional = categoryRepo.findById(product.getCategory().getCategoryId());
-            System.out.println(categoryOptional);
-            if (categoryOptional.isEmpty()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(400, "Product category not found in the system."));
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            if (ifMatch != null && !matchesVersion(ifMatch, updatedProduct)) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(VERSION_MISMATCH);
             }
 
-            // Check if the product exists
-            existingProductOptional = productRepo.findById(id);
-            System.out.println(existingProductOptional);
-            if (existingProductOptional.isEmpty()) {
-                response.put("success", false);
-                response.put("error", createErrorMap(404, "Product not found in the system."));
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            // Check if the Category exists, only looked up when the product moves to another category
+            Category category = updatedProduct.getCategory();
+            if (category.getCategoryId() != product.getCategory().getCategoryId()) {
+                Optional<Category> categoryOptional = categoryRepo.findById(product.getCategory().getCategoryId());
+                if (categoryOptional.isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(CATEGORY_NOT_FOUND);
+                }
+                category = categoryOptional.get();
             }
 
-
-            // Update the product
-            Product updatedProduct = existingProductOptional.get();
+            // Update the product, what it contributed to the category totals so far is taken out afterwards
+            long previousCategoryId = updatedProduct.getCategory().getCategoryId();
+            int previousQuantity = updatedProduct.getQuantity();
+            double previousValue = stockValueOf(updatedProduct);
             updatedProduct.setProductName(product.getProductName());
             updatedProduct.setQuantity(product.getQuantity());
             updatedProduct.setPrice(product.getPrice());
-            updatedProduct.setCategory(categoryOptional.get());
+            updatedProduct.setCategory(category);
+
+            // save updated product (UPDATE ... WHERE version = ?), a name taken by another product is rejected by uk_products_product_name
+            Product savedProduct = productRepo.saveAndFlush(updatedProduct);
+            if (previousCategoryId != category.getCategoryId()) {
+                categoryStatsRepo.add(previousCategoryId, -1, -previousQuantity, -previousValue);
+                categoryStatsRepo.add(category.getCategoryId(), 1, savedProduct.getQuantity(), stockValueOf(savedProduct));
+            } else if (previousQuantity != savedProduct.getQuantity() || previousValue != stockValueOf(savedProduct)) {
+                categoryStatsRepo.add(previousCategoryId, 0, savedProduct.getQuantity() - previousQuantity,
+                        stockValueOf(savedProduct) - previousValue);
+            }
+            eventPublisher.publishEvent(new ProductIndexEvent.Upsert(List.of(indexEntryOf(savedProduct))));
 
-            // save updated product
-            Product savedProduct = productRepo.save(updatedProduct);
+            return ResponseEntity.status(HttpStatus.OK).eTag(etagOf(savedProduct))
+                    .body(ApiResponse.ok("Product updated successfully", savedProduct));
 
-            response.put("success", true);
-            response.put("message", "Product updated successfully");
-            response.put("data", savedProduct);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            if (ifMatch != null) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(VERSION_MISMATCH);
+            }
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(CONCURRENT_UPDATE);
+        } catch (DataIntegrityViolationException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            if (!ConstraintViolations.isViolationOf(e, ConstraintViolations.UK_PRODUCT_NAME)) {
+                log.error("updateProduct >> failed for id : {}", id, e);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(UPDATE_FAILED);
+            }
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(PRODUCT_NAME_EXISTS);
+        } catch (Exception e) {
+            log.error("updateProduct >> failed for id : {}", id, e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(UPDATE_FAILED);
+        }
 
-            return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    // Partial update in a single conditional UPDATE statement, nothing is read first. If-Match is required: the
+    // version in the tag is the one the row must still be at. Only a failed update costs a second query (404 or 412).
+    // A change of price or quantity also moves the product out of its category totals and back in, in the same
+    // transaction, with two UPDATEs that read the row in the database.
+    @Transactional
+    public ResponseEntity<?> patchProduct(Long id, ProductPatch patch, String ifMatch) {
 
+        log.debug("patchProduct >> id : {}", id);
+        productReads.invalidateAfterCommit(id);
+
+        try {
+            long[] versions = ETags.versionsOf(ifMatch, id);
+            if (versions == null) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).body(IF_MATCH_REQUIRED);
+            }
+
+            // Input validation, only the supplied fields are checked
+            String validationError = validatePatch(patch);
+            if (validationError != null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(400, validationError));
+            }
+
+            boolean movesTotals = patch.price() != null || patch.quantity() != null;
+            if (movesTotals) {
+                categoryStatsRepo.addProduct(id, -1);
+            }
+
+            int updated = productRepo.patchProduct(id, versions[0], patch.productName(), patch.price(), patch.quantity(),
+                    patch.description(), Instant.now().truncatedTo(ChronoUnit.MICROS));
+
+            if (updated == 0) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                if (!productRepo.existsById(id)) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(PRODUCT_NOT_FOUND);
+                }
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(VERSION_MISMATCH);
+            }
+
+            if (movesTotals) {
+                categoryStatsRepo.addProduct(id, 1);
+            }
+            if (patch.productName() != null || patch.description() != null) {
+                eventPublisher.publishEvent(new ProductIndexEvent.Reload(List.of(id)));
+            }
+
+            // New tag without reading the row back: the product version moved by one, the category part is carried
+            // over from If-Match (an edit of the category in between only costs the client a 200 on its next GET)
+            versions[0]++;
+
+            return ResponseEntity.status(HttpStatus.OK).eTag(ETags.of(id, versions)).body(PRODUCT_UPDATED);
+
+        } catch (DataIntegrityViolationException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            if (!ConstraintViolations.isViolationOf(e, ConstraintViolations.UK_PRODUCT_NAME)) {
+                log.error("patchProduct >> failed for id : {}", id, e);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(UPDATE_FAILED);
+            }
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(PRODUCT_NAME_EXISTS);
         } catch (Exception e) {
-            e.printStackTrace();
-            response.put("success", false);
-            response.put("error", createErrorMap(500, "An error occurred while updating the product."));
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            log.error("patchProduct >> failed for id : {}", id, e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(UPDATE_FAILED);
         }
+    }
+
+
+    // Atomic stock reservation for orders, no read-modify-write of the product: concurrent reservations can never
+    // take more than the stock left. 409 when the product does not have enough stock.
+    public ResponseEntity<?> reserveStock(Long id, StockChange change) {
+        log.debug("reserveStock >> id : {} & quantity : {}", id, change.quantity());
+        try {
+            if (change.quantity() <= 0) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(INVALID_STOCK_QUANTITY);
+            }
+
+            boolean reserved = stockAggregator.reserve(id, change.quantity());
+            // the UPDATE has committed, a load started before it is not kept
+            productReads.invalidate(id);
+            if (!reserved) {
+                // failure path only: tell a missing product from a short one
+                if (!productRepo.existsById(id)) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(PRODUCT_NOT_FOUND);
+                }
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(INSUFFICIENT_STOCK);
+            }
+
+            return ResponseEntity.status(HttpStatus.OK).body(STOCK_RESERVED);
+
+        } catch (Exception e) {
+            log.error("reserveStock >> failed for id : {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(RESERVE_FAILED);
+        }
+    }
+
+    // Gives previously reserved stock back (cancelled or expired orders)
+    public ResponseEntity<?> releaseStock(Long id, StockChange change) {
+        log.debug("releaseStock >> id : {} & quantity : {}", id, change.quantity());
+        try {
+            if (change.quantity() <= 0) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(INVALID_STOCK_QUANTITY);
+            }
+
+            boolean released = stockAggregator.release(id, change.quantity());
+            // the UPDATE has committed, a load started before it is not kept
+            productReads.invalidate(id);
+            if (!released) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(PRODUCT_NOT_FOUND);
+            }
+
+            return ResponseEntity.status(HttpStatus.OK).body(STOCK_RELEASED);
+
+        } catch (Exception e) {
+            log.error("releaseStock >> failed for id : {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(RELEASE_FAILED);
+        }
+    }
+
+
+    // Field checks shared by the single and the batch write paths, returns null when the product is valid
+    private String validateProduct(Product product) {
+        if (product.getProductName() == null || product.getProductName().isEmpty()) {
+            return "Product name is required.";
+        }
+        if (product.getDescription() == null || product.getDescription().isEmpty()) {
+            return "Product description is required.";
+        }
+        if (product.getPrice() <= 0) {
+            return "Product price must be greater than 0.";
+        }
+        if (product.getQuantity() <= 0) {
+            return "Product quantity must be greater than 0.";
+        }
+        return null;
+    }
+
+    private String validateSearch(ProductSearch search, int page, int size) {
+        boolean hasNamePrefix = search.namePrefix() != null && !search.namePrefix().isEmpty();
+        if (search.categoryId() == null && search.minPrice() == null && search.maxPrice() == null && !hasNamePrefix) {
+            return "At least one of categoryId, minPrice, maxPrice or namePrefix is required.";
+        }
+        if ((search.minPrice() != null && search.minPrice() < 0) || (search.maxPrice() != null && search.maxPrice() < 0)) {
+            return "Price bounds must not be negative.";
+        }
+        if (search.minPrice() != null && search.maxPrice() != null && search.minPrice() > search.maxPrice()) {
+            return "minPrice must not be greater than maxPrice.";
+        }
+        if (page < 0) {
+            return "Page must not be negative.";
+        }
+        if (size <= 0) {
+            return "Page size must be greater than 0.";
+        }
+        return null;
+    }
 
+    private static Specification<Product> searchSpecification(ProductSearch search) {
+        List<Specification<Product>> filters = new ArrayList<>();
+        if (search.categoryId() != null) {
+            filters.add(ProductSpecifications.inCategory(search.categoryId()));
+        }
+        if (search.minPrice() != null) {
+            filters.add(ProductSpecifications.priceAtLeast(search.minPrice()));
+        }
+        if (search.maxPrice() != null) {
+            filters.add(ProductSpecifications.priceAtMost(search.maxPrice()));
+        }
+        if (search.namePrefix() != null && !search.namePrefix().isEmpty()) {
+            filters.add(ProductSpecifications.nameStartsWith(search.namePrefix()));
+        }
+        if (Boolean.TRUE.equals(search.inStock())) {
+            filters.add(ProductSpecifications.inStock());
+        }
+        return Specification.allOf(filters);
     }
 
+    // "price" or "price,desc", productId breaks ties so that pages do not overlap. Defaults to productId.
+    private static Sort searchSort(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return Sort.by("productId");
+        }
+        String[] parts = sort.split(",");
+        String field = parts[0].trim();
+        if (!SEARCH_SORT_FIELDS.contains(field)) {
+            throw new IllegalArgumentException("Unknown sort field: " + field + ". Sortable fields are "
+                    + String.join(", ", SEARCH_SORT_FIELDS) + ".");
+        }
+        Sort.Direction direction = Sort.Direction.ASC;
+        if (parts.length > 1) {
+            direction = Sort.Direction.fromOptionalString(parts[1].trim())
+                    .orElseThrow(() -> new IllegalArgumentException("Sort direction must be asc or desc."));
+        }
+        Sort order = Sort.by(direction, field);
+        return field.equals("productId") ? order : order.and(Sort.by("productId"));
+    }
 
-    private Map<String, Object> createErrorMap(int code, String details) {
-        Map<String, Object> errorMap = new HashMap<>();
-        errorMap.put("code", code);
-        errorMap.put("details", details);
-        return errorMap;
+    // Same field rules as validateProduct, applied to the fields present in the patch
+    private String validatePatch(ProductPatch patch) {
+        if (patch.productName() == null && patch.price() == null && patch.quantity() == null && patch.description() == null) {
+            return "Nothing to update.";
+        }
+        if (patch.productName() != null && patch.productName().isEmpty()) {
+            return "Product name is required.";
+        }
+        if (patch.description() != null && patch.description().isEmpty()) {
+            return "Product description is required.";
+        }
+        if (patch.price() != null && patch.price() <= 0) {
+            return "Product price must be greater than 0.";
+        }
+        if (patch.quantity() != null && patch.quantity() <= 0) {
+            return "Product quantity must be greater than 0.";
+        }
+        return null;
+    }
+
+    // If-Match of a write compares the product version only, an edit of the category does not conflict with it
+    private static boolean matchesVersion(String ifMatch, Product product) {
+        long[] versions = ETags.versionsOf(ifMatch, product.getProductId());
+        return versions != null && versions[0] == product.getVersion();
+    }
+
+    // The category is part of the product representation, so its version is part of the tag
+    private static String etagOf(Product product) {
+        return ETags.of(product.getProductId(), product.getVersion(), product.getCategory().getVersion());
+    }
+
+    private static double stockValueOf(Product product) {
+        return product.getPrice() * product.getQuantity();
+    }
+
+    private static ProductIndexEntry indexEntryOf(Product product) {
+        return new ProductIndexEntry(product.getProductId(), product.getProductName(), product.getDescription(),
+                product.getCategory().getCategoryId());
+    }
+
+    // Change of the totals of one category by a batch
+    private static final class CategoryDelta {
+        private long products;
+        private long quantity;
+        private double value;
+
+        private void add(Product product) {
+            products++;
+            quantity += product.getQuantity();
+            value += stockValueOf(product);
+        }
     }
 }
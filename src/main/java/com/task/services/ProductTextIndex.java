@@ -0,0 +1,258 @@
+package com.task.services;
+
+import com.task.config.TextSearchProperties;
+import com.task.dto.ProductIndexEntry;
+import com.task.dto.TextSearchHit;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Embedded Lucene index of the product names and descriptions, the text search never touches the database.
+// Writes go through one IndexWriter and become visible with the near-real-time reopen of a background thread,
+// within the refresh interval, so writers never pay for a reopen. Commits (fsync) only happen after a rebuild and on
+// shutdown since the index can always be rebuilt from the table. The commit data records the schema version and
+// whether the index was closed cleanly, a crash or a new schema makes the next start rebuild it.
+@Component
+public class ProductTextIndex implements DisposableBean {
+
+    static final String ID = "productId";
+    static final String NAME = "productName";
+    static final String DESCRIPTION = "description";
+    static final String CATEGORY = "categoryId";
+
+    // Longer queries are cut, every term adds up to five clauses
+    private static final int MAX_QUERY_TERMS = 8;
+    // Shorter terms are too ambiguous for a fuzzy match, from this length on one typo is tolerated (two from 8 on)
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    // Bumped whenever document() or the analyzer changes, an index written with another version is rebuilt
+    private static final String SCHEMA_VERSION = "1";
+    private static final String SCHEMA_KEY = "schema";
+    private static final String CLEAN_KEY = "clean";
+    // Reopen for a caller waiting on its writes (awaitWrites) at most this often
+    private static final double MIN_STALE_SECONDS = 0.025;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+    private final boolean current;
+    // sequence number of the latest write, what awaitWrites waits for
+    private final AtomicLong lastWrite = new AtomicLong();
+
+    @Autowired
+    public ProductTextIndex(TextSearchProperties properties) throws IOException {
+        this.directory = properties.indexPath() == null || properties.indexPath().isBlank()
+                ? new ByteBuffersDirectory()
+                : FSDirectory.open(Path.of(properties.indexPath()));
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                .setRAMBufferSizeMB(64);
+        this.writer = new IndexWriter(directory, config);
+        this.current = isCurrent(writer.getLiveCommitData());
+        // until destroy() says otherwise, a crash leaves the index marked as not clean
+        commit();
+        this.searcherManager = new SearcherManager(writer, null);
+        double maxStaleSeconds = properties.refreshInterval().toMillis() / 1000.0;
+        this.reopenThread = new ControlledRealTimeReopenThread<>(writer, searcherManager, maxStaleSeconds,
+                Math.min(MIN_STALE_SECONDS, maxStaleSeconds));
+        reopenThread.setName("text-index-reopen");
+        reopenThread.setDaemon(true);
+        reopenThread.start();
+    }
+
+    // Whether the index on disk was closed cleanly by a run with the current schema, and need not be rebuilt
+    public boolean isCurrent() {
+        return current;
+    }
+
+    // Adds or replaces the documents of these products
+    public void index(Collection<ProductIndexEntry> products) throws IOException {
+        for (ProductIndexEntry product : products) {
+            written(writer.updateDocument(new Term(ID, Long.toString(product.productId())), document(product)));
+        }
+    }
+
+    // Appends documents without the delete by id, only for a rebuild into an empty index
+    void add(Collection<ProductIndexEntry> products) throws IOException {
+        List<Document> documents = new ArrayList<>(products.size());
+        for (ProductIndexEntry product : products) {
+            documents.add(document(product));
+        }
+        written(writer.addDocuments(documents));
+    }
+
+    public void delete(Collection<Long> productIds) throws IOException {
+        Term[] terms = new Term[productIds.size()];
+        int i = 0;
+        for (Long productId : productIds) {
+            terms[i++] = new Term(ID, productId.toString());
+        }
+        written(writer.deleteDocuments(terms));
+    }
+
+    void deleteAll() throws IOException {
+        written(writer.deleteAll());
+    }
+
+    // Makes the writes so far visible to the searches at once, waits for a reopen already running
+    public void refresh() throws IOException {
+        searcherManager.maybeRefreshBlocking();
+    }
+
+    // Waits until the writes so far are visible to the searches, for callers that must read their own writes
+    public void awaitWrites() throws InterruptedException {
+        reopenThread.waitForGeneration(lastWrite.get());
+    }
+
+    void commit() throws IOException {
+        writer.setLiveCommitData(Map.of(SCHEMA_KEY, SCHEMA_VERSION, CLEAN_KEY, "false").entrySet(), true);
+        writer.commit();
+    }
+
+    private void written(long sequenceNumber) {
+        lastWrite.accumulateAndGet(sequenceNumber, Math::max);
+    }
+
+    private static boolean isCurrent(Iterable<Map.Entry<String, String>> commitData) {
+        Map<String, String> data = new HashMap<>();
+        if (commitData != null) {
+            commitData.forEach(entry -> data.put(entry.getKey(), entry.getValue()));
+        }
+        return SCHEMA_VERSION.equals(data.get(SCHEMA_KEY)) && "true".equals(data.get(CLEAN_KEY));
+    }
+
+    // Products whose name or description match every term of the text, best first. A term matches a word exactly
+    // (ranked highest) or as its prefix, and a word of the name with a typo as well. A name match outranks a
+    // description match. Typos are not looked up in the descriptions, that doubled the latency of a search.
+    public List<TextSearchHit> search(String text, int limit) throws IOException {
+        Query query = parse(text);
+        if (query == null) {
+            return List.of();
+        }
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs topDocs = searcher.search(query, limit);
+            StoredFields storedFields = searcher.storedFields();
+            List<TextSearchHit> hits = new ArrayList<>(topDocs.scoreDocs.length);
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                Document document = storedFields.document(scoreDoc.doc);
+                hits.add(new TextSearchHit(document.getField(ID).storedValue().getLongValue(), document.get(NAME),
+                        document.getField(CATEGORY).storedValue().getLongValue(), scoreDoc.score));
+            }
+            return hits;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    // Number of documents visible to the searches
+    public int size() throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            return searcher.getIndexReader().numDocs();
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    Query parse(String text) throws IOException {
+        List<String> terms = analyze(text);
+        if (terms.isEmpty()) {
+            return null;
+        }
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (String term : terms) {
+            BooleanQuery.Builder anyOf = new BooleanQuery.Builder()
+                    .add(new BoostQuery(new TermQuery(new Term(NAME, term)), 4f), BooleanClause.Occur.SHOULD)
+                    .add(new BoostQuery(new TermQuery(new Term(DESCRIPTION, term)), 2f), BooleanClause.Occur.SHOULD);
+            if (term.length() >= MIN_PREFIX_LENGTH) {
+                anyOf.add(new BoostQuery(new PrefixQuery(new Term(NAME, term)), 2f), BooleanClause.Occur.SHOULD)
+                        .add(new BoostQuery(new PrefixQuery(new Term(DESCRIPTION, term)), 0.5f), BooleanClause.Occur.SHOULD);
+            }
+            if (term.length() >= MIN_FUZZY_LENGTH) {
+                int maxEdits = term.length() >= 8 ? 2 : 1;
+                // the first character has to match, which keeps the automaton small
+                anyOf.add(new FuzzyQuery(new Term(NAME, term), maxEdits, 1), BooleanClause.Occur.SHOULD);
+            }
+            query.add(anyOf.build(), BooleanClause.Occur.MUST);
+        }
+        return query.build();
+    }
+
+    private List<String> analyze(String text) throws IOException {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream tokens = analyzer.tokenStream(NAME, text)) {
+            CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (terms.size() < MAX_QUERY_TERMS && tokens.incrementToken()) {
+                terms.add(term.toString());
+            }
+            tokens.end();
+        }
+        return terms;
+    }
+
+    private static Document document(ProductIndexEntry product) {
+        Document document = new Document();
+        document.add(new StringField(ID, Long.toString(product.productId()), Field.Store.NO));
+        document.add(new StoredField(ID, product.productId()));
+        document.add(new TextField(NAME, product.productName(), Field.Store.YES));
+        if (product.description() != null) {
+            document.add(new TextField(DESCRIPTION, product.description(), Field.Store.NO));
+        }
+        document.add(new StoredField(CATEGORY, product.categoryId()));
+        return document;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        reopenThread.close();
+        searcherManager.close();
+        // commits what was written since the last commit, marked clean for the next start
+        writer.setLiveCommitData(Map.of(SCHEMA_KEY, SCHEMA_VERSION, CLEAN_KEY, "true").entrySet(), true);
+        writer.close();
+        directory.close();
+    }
+}
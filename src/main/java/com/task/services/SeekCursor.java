@@ -0,0 +1,34 @@
+package com.task.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Opaque cursor used by the keyset paginated endpoints, it wraps the id of the last row of a page
+final class SeekCursor {
+
+    private static final String PREFIX = "id:";
+
+    private SeekCursor() {
+    }
+
+    static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // An empty cursor starts from the first row, an invalid one throws IllegalArgumentException
+    static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        if (!decoded.startsWith(PREFIX)) {
+            throw new IllegalArgumentException("Invalid cursor : " + cursor);
+        }
+        long lastId = Long.parseLong(decoded.substring(PREFIX.length()));
+        if (lastId < 0) {
+            throw new IllegalArgumentException("Invalid cursor : " + cursor);
+        }
+        return lastId;
+    }
+}
@@ -0,0 +1,82 @@
+package com.task.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.task.config.ReadWriteRouting;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+// Request coalescing: concurrent loads of the same key share one run of the loader, on the thread that came first,
+// and the result is kept for ttl after it completes (0 keeps nothing beyond the loads in flight). A failed load is
+// thrown to every caller that waited on it and is not kept, the next caller loads again. A client that reads its own
+// writes from the primary (ReadWriteRouting) loads on its own: a shared load or result may come from a replica.
+final class SingleFlight<K, V> {
+
+    private final AsyncCache<K, V> flights;
+
+    SingleFlight(Duration ttl, long maximumSize) {
+        // Caffeine only starts the expiry of an entry once its future has completed
+        this.flights = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .buildAsync();
+    }
+
+    V get(K key, Supplier<V> loader) {
+        if (ReadWriteRouting.isSticky()) {
+            return loader.get();
+        }
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = flights.asMap().putIfAbsent(key, flight);
+        if (inFlight != null) {
+            return join(inFlight);
+        }
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);     // also removes it from the cache
+            throw e;
+        }
+    }
+
+    // Drops the kept result, a load in flight still completes for the callers waiting on it
+    void invalidate(K key) {
+        flights.synchronous().invalidate(key);
+    }
+
+    // invalidate once the current transaction has committed (right away outside a transaction), so that a load
+    // running concurrently with the write cannot keep the old state for another ttl
+    void invalidateAfterCommit(K key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(key);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(key);
+            }
+        });
+    }
+
+    private static <V> V join(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.task.services;
+
+import com.task.config.StockAggregationProperties;
+import com.task.repositories.CategoryStatsRepo;
+import com.task.repositories.ProductRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Applies stock changes with atomic UPDATEs. With app.stock.aggregation.enabled, concurrent changes are combined:
+// callers queue their change on the stripe of the product, the caller holding the stripe lock drains the queue and
+// flushes all pending changes of a product in one UPDATE while the next ones queue up behind it. Every caller still
+// returns only once its change is committed, so no acknowledged change can be lost.
+// Every stock UPDATE commits together with the matching change of the category totals (category_stats).
+@Component
+public class StockAggregator {
+
+    private final ProductRepo productRepo;
+    private final CategoryStatsRepo categoryStatsRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Stripe[] stripes;
+
+    @Autowired
+    public StockAggregator(ProductRepo productRepo, CategoryStatsRepo categoryStatsRepo,
+                           TransactionTemplate transactionTemplate, StockAggregationProperties properties) {
+        this.productRepo = productRepo;
+        this.categoryStatsRepo = categoryStatsRepo;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = properties.enabled();
+        this.stripes = new Stripe[properties.stripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // Takes quantity from the stock, false when the product is missing or has less than quantity left
+    public boolean reserve(long productId, int quantity) {
+        if (!enabled) {
+            return reserveNow(productId, quantity);
+        }
+        return submit(new Change(productId, -quantity));
+    }
+
+    // Gives quantity back to the stock, false when the product is missing
+    public boolean release(long productId, int quantity) {
+        if (!enabled) {
+            return releaseNow(productId, quantity);
+        }
+        return submit(new Change(productId, quantity));
+    }
+
+    private boolean submit(Change change) {
+        Stripe stripe = stripes[Math.floorMod(Long.hashCode(change.productId), stripes.length)];
+        stripe.pending.add(change);
+
+        // Whoever holds the lock flushes every change queued so far, so by the time we get it our change has
+        // usually been applied by the previous holder and there is nothing left to do
+        stripe.lock.lock();
+        try {
+            if (!change.result.isDone()) {
+                flush(stripe);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        try {
+            return change.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void flush(Stripe stripe) {
+        Map<Long, List<Change>> byProduct = new LinkedHashMap<>();
+        Change change;
+        while ((change = stripe.pending.poll()) != null) {
+            byProduct.computeIfAbsent(change.productId, id -> new ArrayList<>()).add(change);
+        }
+        byProduct.forEach(this::flush);
+    }
+
+    private void flush(long productId, List<Change> changes) {
+        List<Change> releases = new ArrayList<>();
+        List<Change> reservations = new ArrayList<>();
+        int released = 0;
+        int reserved = 0;
+        for (Change change : changes) {
+            if (change.delta >= 0) {
+                releases.add(change);
+                released += change.delta;
+            } else {
+                reservations.add(change);
+                reserved -= change.delta;
+            }
+        }
+
+        try {
+            // releases first, so that the reservations of the same batch can use that stock
+            if (!releases.isEmpty()) {
+                boolean found = releaseNow(productId, released);
+                releases.forEach(c -> c.result.complete(found));
+            }
+            if (reservations.isEmpty()) {
+                return;
+            }
+            if (reserveNow(productId, reserved)) {
+                reservations.forEach(c -> c.result.complete(true));
+                return;
+            }
+            // not enough stock for all of them, grant what fits one at a time
+            for (Change reservation : reservations) {
+                reservation.result.complete(reserveNow(productId, -reservation.delta));
+            }
+        } catch (RuntimeException e) {
+            changes.forEach(c -> c.result.completeExceptionally(e));
+        }
+    }
+
+    private boolean reserveNow(long productId, int quantity) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (productRepo.reserveStock(productId, quantity, now()) == 0) {
+                return false;
+            }
+            categoryStatsRepo.addStock(productId, -quantity);
+            return true;
+        }));
+    }
+
+    private boolean releaseNow(long productId, int quantity) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (productRepo.releaseStock(productId, quantity, now()) == 0) {
+                return false;
+            }
+            categoryStatsRepo.addStock(productId, quantity);
+            return true;
+        }));
+    }
+
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    // ReentrantLock rather than synchronized, a virtual thread flushing on the stripe must not pin its carrier
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Queue<Change> pending = new ConcurrentLinkedQueue<>();
+    }
+
+    private static final class Change {
+        private final long productId;
+        private final int delta;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        private Change(long productId, int delta) {
+            this.productId = productId;
+            this.delta = delta;
+        }
+    }
+}
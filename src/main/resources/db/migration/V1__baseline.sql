@@ -0,0 +1,34 @@
+-- Schema that hibernate.ddl-auto=update created for the entities as they were just before Flyway was introduced:
+-- categories with an AUTO_INCREMENT id, products with ids from the pooled products_seq table (the generator the batch
+-- ingestion switched them to, IDENTITY ids cannot be sent as JDBC batches) and dates without a time.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate), so this script only runs
+-- against an empty schema. Databases created while product_id was still AUTO_INCREMENT keep that attribute, it is
+-- unused since Hibernate assigns the ids; V2 creates their missing products_seq.
+
+CREATE TABLE categories (
+    category_id   BIGINT       NOT NULL AUTO_INCREMENT,
+    category_name VARCHAR(255) NOT NULL,
+    description   VARCHAR(255),
+    created_at    DATE         NOT NULL,
+    updated_at    DATE,
+    PRIMARY KEY (category_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE products (
+    product_id   BIGINT       NOT NULL,
+    product_name VARCHAR(255) NOT NULL,
+    category_id  BIGINT       NOT NULL,
+    price        DOUBLE       NOT NULL,
+    quantity     INT          NOT NULL,
+    description  VARCHAR(255),
+    created_at   DATE         NOT NULL,
+    updated_at   DATE,
+    PRIMARY KEY (product_id),
+    CONSTRAINT fk_products_category FOREIGN KEY (category_id) REFERENCES categories (category_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE products_seq (
+    next_val BIGINT
+) ENGINE = InnoDB;
+
+INSERT INTO products_seq VALUES (1);
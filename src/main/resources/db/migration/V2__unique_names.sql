@@ -0,0 +1,18 @@
+-- Unique (and therefore indexed) product and category names. The services rely on these constraints
+-- instead of looking the name up before every insert and update.
+-- Duplicate names already present in the tables have to be cleaned up before this migration can run.
+
+ALTER TABLE categories ADD CONSTRAINT uk_categories_category_name UNIQUE (category_name);
+
+ALTER TABLE products ADD CONSTRAINT uk_products_product_name UNIQUE (product_name);
+
+-- Baselined databases may predate the pooled products_seq generator
+CREATE TABLE IF NOT EXISTS products_seq (
+    next_val BIGINT
+) ENGINE = InnoDB;
+
+INSERT INTO products_seq (next_val)
+SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT * FROM products_seq);
+
+-- Start the pooled generator past the ids already in use (allocationSize is 50)
+UPDATE products_seq SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(product_id), 0) + 51 FROM products));
@@ -0,0 +1,12 @@
+-- created_at / updated_at go from day to microsecond precision (stored in UTC), updated_at backs the
+-- ETag and Last-Modified headers of the GET endpoints. Existing dates become midnight of that day.
+
+UPDATE categories SET updated_at = created_at WHERE updated_at IS NULL;
+UPDATE products SET updated_at = created_at WHERE updated_at IS NULL;
+
+-- One column per statement, so that the H2 schema test (SchemaMigrationTests) can run the script too
+ALTER TABLE categories MODIFY created_at DATETIME(6) NOT NULL;
+ALTER TABLE categories MODIFY updated_at DATETIME(6) NOT NULL;
+
+ALTER TABLE products MODIFY created_at DATETIME(6) NOT NULL;
+ALTER TABLE products MODIFY updated_at DATETIME(6) NOT NULL;
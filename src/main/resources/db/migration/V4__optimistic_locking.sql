@@ -0,0 +1,6 @@
+-- @Version columns: concurrent updates of the same row are detected instead of silently overwritten,
+-- and the version backs the ETag / If-Match of the product and category resources.
+
+ALTER TABLE categories ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE products ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,10 @@
+-- Indexes behind GET /api/products/search, every supported filter combination starts from one of them:
+-- category (and price range), category and name prefix, price range alone, name prefix alone (uk_products_product_name).
+-- With category_id leading, the composite indexes also back fk_products_category, InnoDB drops the index it
+-- created implicitly for the foreign key.
+
+CREATE INDEX idx_products_category_price ON products (category_id, price);
+
+CREATE INDEX idx_products_category_name ON products (category_id, product_name);
+
+CREATE INDEX idx_products_price ON products (price);
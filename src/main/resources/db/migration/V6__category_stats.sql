@@ -0,0 +1,17 @@
+-- Per-category totals behind GET /api/categories/aggregates, so the dashboards read one row per category instead
+-- of summing the products. The services keep them up to date in the transaction of every product write,
+-- CategoryStatsReconciler periodically recomputes them. Filled here from the existing rows.
+
+CREATE TABLE category_stats (
+    category_id    BIGINT NOT NULL,
+    product_count  BIGINT NOT NULL,
+    total_quantity BIGINT NOT NULL,
+    stock_value    DOUBLE NOT NULL,
+    PRIMARY KEY (category_id),
+    CONSTRAINT fk_category_stats_category FOREIGN KEY (category_id) REFERENCES categories (category_id)
+) ENGINE = InnoDB;
+
+INSERT INTO category_stats (category_id, product_count, total_quantity, stock_value)
+SELECT c.category_id, COUNT(p.product_id), COALESCE(SUM(p.quantity), 0), COALESCE(SUM(p.price * p.quantity), 0)
+FROM categories c LEFT JOIN products p ON p.category_id = c.category_id
+GROUP BY c.category_id;
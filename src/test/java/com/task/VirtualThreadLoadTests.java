@@ -0,0 +1,242 @@
+package com.task;
+
+import com.task.entities.Category;
+import com.task.entities.Product;
+import com.task.repositories.CategoryRepo;
+import com.task.repositories.ProductRepo;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Platform-thread vs virtual-thread request execution. Every JDBC statement is delayed to stand in for MySQL
+// round trips, so request threads spend their time blocked on JDBC like they do in production.
+@EnabledForJreRange(min = JRE.JAVA_21)
+class VirtualThreadLoadTests {
+
+    private static final long STATEMENT_LATENCY_MS = 20;
+
+    // Throughput and tail latency of both modes under more concurrent clients than Tomcat has platform workers,
+    // run with: mvn -Pjava21 test -Dtest=VirtualThreadLoadTests -Dloadtest=true
+    @Test
+    @EnabledIfSystemProperty(named = "loadtest", matches = "true")
+    void compareThroughputAndTailLatency() throws Exception {
+        LoadResult platform = runLoad(false, 400, Duration.ofSeconds(10));
+        LoadResult virtual = runLoad(true, 400, Duration.ofSeconds(10));
+
+        System.out.printf("%-10s %12s %10s %10s %10s %8s%n", "mode", "requests/s", "p50 ms", "p99 ms", "p999 ms", "errors");
+        System.out.println(platform.format("platform"));
+        System.out.println(virtual.format("virtual"));
+
+        assertEquals(0, platform.errors);
+        assertEquals(0, virtual.errors);
+    }
+
+    // No virtual thread may stay pinned to its carrier while blocked on the JDBC path
+    // (synchronized blocks in Hibernate, HikariCP, Spring or the application code)
+    @Test
+    void jdbcPathDoesNotPinCarrierThreads() throws Exception {
+        List<String> pinnedStacks = Collections.synchronizedList(new ArrayList<>());
+
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", event -> pinnedStacks.add(describe(event)));
+            recording.startAsync();
+
+            LoadResult result = runLoad(true, 100, Duration.ofSeconds(3));
+            assertEquals(0, result.errors);
+
+            // let the stream deliver the last chunk of events
+            Thread.sleep(2_000);
+        }
+
+        assertTrue(pinnedStacks.isEmpty(), () -> "Virtual threads pinned on:\n" + String.join("\n\n", pinnedStacks));
+    }
+
+    private LoadResult runLoad(boolean virtualThreads, int clients, Duration duration) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(RestApiTaskApplication.class)
+                .profiles("test")
+                .initializers(ctx -> ctx.getBeanFactory().addBeanPostProcessor(new LatencyInjectingPostProcessor()))
+                .properties("server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "spring.datasource.hikari.maximum-pool-size=100",
+                        "logging.level.com.task=WARN",
+                        "spring.main.banner-mode=off")
+                .run()) {
+
+            seed(context);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI uri = URI.create("http://localhost:" + port + "/api/products?page=0&size=5");
+
+            HttpClient client = HttpClient.newBuilder().executor(Executors.newFixedThreadPool(8)).build();
+            HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+
+            // warm up, then measure
+            drive(client, request, clients, Duration.ofSeconds(2), null);
+            List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+            AtomicLong errors = new AtomicLong();
+            drive(client, request, clients, duration, new Recorder(latencies, errors));
+
+            return new LoadResult(latencies, errors.get(), duration);
+        }
+    }
+
+    private static void drive(HttpClient client, HttpRequest request, int clients, Duration duration, Recorder recorder)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        for (int i = 0; i < clients; i++) {
+            executor.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (recorder != null) {
+                            recorder.record(System.nanoTime() - start, response.statusCode() != 200);
+                        }
+                    } catch (Exception e) {
+                        if (recorder != null) {
+                            recorder.record(System.nanoTime() - start, true);
+                        }
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(duration.toSeconds() + 60, TimeUnit.SECONDS);
+    }
+
+    private static void seed(ConfigurableApplicationContext context) {
+        Category category = new Category();
+        category.setCategoryName("Electronics");
+        category.setDescription("All electronic products");
+        category = context.getBean(CategoryRepo.class).save(category);
+
+        for (int i = 0; i < 20; i++) {
+            Product product = new Product();
+            product.setProductName("Laptop " + i);
+            product.setDescription("Laptop " + i + " description");
+            product.setPrice(65999);
+            product.setQuantity(10);
+            product.setCategory(category);
+            context.getBean(ProductRepo.class).save(product);
+        }
+    }
+
+    private static String describe(RecordedEvent event) {
+        StringBuilder stack = new StringBuilder(event.getDuration().toMillis() + " ms");
+        if (event.getStackTrace() != null) {
+            for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                stack.append("\n  at ").append(frame.getMethod().getType().getName()).append('.').append(frame.getMethod().getName());
+            }
+        }
+        return stack.toString();
+    }
+
+    private record Recorder(List<Long> latencies, AtomicLong errors) {
+
+        void record(long nanos, boolean failed) {
+            latencies.add(nanos);
+            if (failed) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+
+    private static final class LoadResult {
+
+        private final long[] sortedLatencies;
+        private final long errors;
+        private final Duration duration;
+
+        LoadResult(List<Long> latencies, long errors, Duration duration) {
+            this.sortedLatencies = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            this.errors = errors;
+            this.duration = duration;
+        }
+
+        String format(String mode) {
+            return String.format("%-10s %12.1f %10.1f %10.1f %10.1f %8d", mode,
+                    sortedLatencies.length / (double) duration.toSeconds(),
+                    percentile(0.5), percentile(0.99), percentile(0.999), errors);
+        }
+
+        private double percentile(double p) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(sortedLatencies.length - 1, Math.ceil(p * sortedLatencies.length) - 1);
+            return sortedLatencies[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+
+    // Wraps the pool so that every statement execution blocks for STATEMENT_LATENCY_MS before reaching H2
+    private static final class LatencyInjectingPostProcessor implements BeanPostProcessor {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof DelegatingDataSource)) {
+                return new DelegatingDataSource(dataSource) {
+                    @Override
+                    public Connection getConnection() throws SQLException {
+                        return delayed(Connection.class, super.getConnection());
+                    }
+                };
+            }
+            return bean;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T delayed(Class<T> type, T target) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                if (method.getName().startsWith("execute")) {
+                    Thread.sleep(STATEMENT_LATENCY_MS);
+                }
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+                if (result instanceof PreparedStatement statement) {
+                    return delayed(PreparedStatement.class, statement);
+                }
+                if (result instanceof Statement statement) {
+                    return delayed(Statement.class, statement);
+                }
+                return result;
+            });
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.task.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The limit follows the latency of the admitted requests, requests past it are shed with 503 and Retry-After
+class AdmissionControlTests {
+
+    @Test
+    void requestsPastTheLimitAreRefused() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(3, 1, 10);
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+
+        limit.release();
+        assertTrue(limit.tryAcquire());
+        assertEquals(3, limit.inFlight());
+    }
+
+    @Test
+    void limitGrowsAtSteadyLatencyAndShrinksWhenItRises() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 100);
+        saturate(limit, TimeUnit.MILLISECONDS.toNanos(5), 20);
+        int steady = limit.limit();
+        assertTrue(steady > 10, "limit " + steady);
+
+        saturate(limit, TimeUnit.MILLISECONDS.toNanos(50), 20);
+        int slow = limit.limit();
+        assertTrue(slow < steady / 2, "limit " + slow + " after " + steady);
+    }
+
+    @Test
+    void fullBulkheadAnswers503WithRetryAfter() throws Exception {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AdmissionControlProperties properties = new AdmissionControlProperties(true,
+                new AdmissionControlProperties.Bulkhead(1, 1, 1), new AdmissionControlProperties.Bulkhead(1, 1, 1),
+                Duration.ofSeconds(2));
+        AdmissionControlInterceptor interceptor =
+                new AdmissionControlInterceptor(properties, new ObjectMapper(), meterRegistry);
+
+        MockHttpServletRequest first = new MockHttpServletRequest("GET", "/api/products/1");
+        assertTrue(interceptor.preHandle(first, new MockHttpServletResponse(), null));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(new MockHttpServletRequest("GET", "/api/products/2"), rejected, null));
+        assertEquals(503, rejected.getStatus());
+        assertEquals("2", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(rejected.getContentAsString().contains("\"code\":503"), rejected.getContentAsString());
+        assertEquals(1.0, meterRegistry.get(AdmissionControlInterceptor.REJECTED_METRIC)
+                .tag("bulkhead", "reads").counter().count());
+
+        // writes have their own bulkhead
+        assertTrue(interceptor.preHandle(new MockHttpServletRequest("PUT", "/api/products/1"),
+                new MockHttpServletResponse(), null));
+
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+        assertTrue(interceptor.preHandle(new MockHttpServletRequest("GET", "/api/products/2"),
+                new MockHttpServletResponse(), null));
+    }
+
+    // Fills the limit and releases every request with the given round trip, rounds times
+    private static void saturate(AdaptiveConcurrencyLimit limit, long rttNanos, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int admitted = 0;
+            while (limit.tryAcquire()) {
+                admitted++;
+            }
+            for (int i = 0; i < admitted; i++) {
+                limit.release(rttNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.task.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// The pool is sized from the database limits of the profile and reports its saturation
+@SpringBootTest(properties = {"app.datasource.pool.enabled=true", "app.datasource.pool.database-cores=4",
+        "app.datasource.pool.effective-spindles=1"})
+@ActiveProfiles("test")
+class DataSourcePoolConfigTests {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void poolIsSizedFromDatabaseCores() throws Exception {
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+        assertEquals(9, hikari.getMaximumPoolSize());
+        assertEquals(9, hikari.getMinimumIdle());
+    }
+
+    @Test
+    void connectionLimitCapsThePoolSize() {
+        // 4 instances share what is left of 151 connections after 11 reserved ones
+        PoolSizingProperties properties = new PoolSizingProperties(true, 32, 1, 151, 4, 11);
+        assertEquals(35, properties.maximumPoolSize());
+    }
+
+    @Test
+    void saturationIsReported() {
+        assertNotNull(meterRegistry.find(DataSourcePoolConfig.SATURATION_METRIC).gauge());
+    }
+}
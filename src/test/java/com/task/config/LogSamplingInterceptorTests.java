@@ -0,0 +1,63 @@
+package com.task.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// The sampling decision stays with its request, a request served next on the same thread starts from its own
+class LogSamplingInterceptorTests {
+
+    private final LogSamplingInterceptor interceptor =
+            new LogSamplingInterceptor(new LogSamplingProperties(0.0, Map.of("exportProducts", 1.0)));
+
+    @AfterEach
+    void clearMdc() {
+        MDC.remove(LogSamplingInterceptor.MDC_KEY);
+    }
+
+    @Test
+    void streamedRequestDoesNotLeaveItsDecisionOnTheThread() throws Exception {
+        MockHttpServletRequest export = new MockHttpServletRequest("GET", "/api/products/export");
+        MockHttpServletResponse exportResponse = new MockHttpServletResponse();
+        interceptor.preHandle(export, exportResponse, handler("exportProducts"));
+        assertEquals(LogSamplingInterceptor.SAMPLED, MDC.get(LogSamplingInterceptor.MDC_KEY));
+        // the export returns a StreamingResponseBody, afterCompletion does not run on this thread
+        interceptor.afterConcurrentHandlingStarted(export, exportResponse, handler("exportProducts"));
+        assertNull(MDC.get(LogSamplingInterceptor.MDC_KEY));
+
+        MockHttpServletRequest next = new MockHttpServletRequest("GET", "/api/products/1");
+        interceptor.preHandle(next, new MockHttpServletResponse(), handler("getProduct"));
+        assertNull(MDC.get(LogSamplingInterceptor.MDC_KEY));
+    }
+
+    @Test
+    void staleDecisionIsReplacedByTheNextRequest() throws Exception {
+        // left behind by whatever ran on this thread before
+        MDC.put(LogSamplingInterceptor.MDC_KEY, LogSamplingInterceptor.SAMPLED);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/1");
+        interceptor.preHandle(request, new MockHttpServletResponse(), handler("getProduct"));
+        assertNull(MDC.get(LogSamplingInterceptor.MDC_KEY));
+    }
+
+    private static HandlerMethod handler(String name) throws NoSuchMethodException {
+        return new HandlerMethod(new Endpoints(), Endpoints.class.getDeclaredMethod(name));
+    }
+
+    private static final class Endpoints {
+
+        void exportProducts() {
+        }
+
+        void getProduct() {
+        }
+    }
+}
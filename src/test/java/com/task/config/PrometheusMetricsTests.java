@@ -0,0 +1,56 @@
+package com.task.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The endpoint, service, repository, pool and Hibernate meters are scraped from /actuator/prometheus, service calls
+// with the outcome of their response
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+class PrometheusMetricsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void serviceCallsAreTaggedWithTheirOutcome() throws Exception {
+        mockMvc.perform(post("/api/categories").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"categoryName\":\"Metered category\",\"description\":\"Metered category description\"}"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/api/categories").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\"No name\"}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/products/{id}", Long.MAX_VALUE)).andExpect(status().isNotFound());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertContains(scrape, "app_service_calls_seconds_count{class=\"ProductService\",method=\"getProduct\",outcome=\"404\"}");
+        assertContains(scrape, "app_service_calls_seconds_count{class=\"CategoryService\",method=\"addCategory\",outcome=\"success\"}");
+        assertContains(scrape, "app_service_calls_seconds_count{class=\"CategoryService\",method=\"addCategory\",outcome=\"400\"}");
+        assertContains(scrape, "app_service_calls_seconds_bucket{class=\"ProductService\",method=\"getProduct\",outcome=\"404\"");
+        // repository queries carry their outcome in the state tag
+        assertContains(scrape, "method=\"findById\",repository=\"ProductRepo\",state=\"SUCCESS\"}");
+        assertContains(scrape, "http_server_requests_seconds_count{");
+        assertContains(scrape, "hikaricp_connections_usage_seconds_count{");
+        assertContains(scrape, "hibernate_statements_total{");
+    }
+
+    private static void assertContains(String scrape, String line) {
+        assertTrue(scrape.contains(line), "missing " + line);
+    }
+}
@@ -0,0 +1,165 @@
+package com.task.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.task.dto.CategoryAggregate;
+import com.task.dto.CategoryTotals;
+import com.task.entities.Product;
+import com.task.repositories.CategoryRepo;
+import com.task.repositories.CategoryStatsRepo;
+import com.task.repositories.ProductRepo;
+import com.task.services.CategoryStatsReconciler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The category totals follow every product write in its own transaction, and the reconciliation repairs drift
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CategoryAggregatesTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    @Autowired
+    private CategoryStatsRepo categoryStatsRepo;
+
+    @Autowired
+    private CategoryStatsReconciler categoryStatsReconciler;
+
+    private long audioId;
+    private long videoId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        productRepo.deleteAllInBatch();
+        categoryStatsRepo.deleteAllInBatch();
+        categoryRepo.deleteAllInBatch();
+
+        audioId = data(mockMvc.perform(post("/api/categories").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"categoryName\":\"Audio\",\"description\":\"Audio equipment\"}"))).get("categoryId").asLong();
+        videoId = data(mockMvc.perform(post("/api/categories").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"categoryName\":\"Video\",\"description\":\"Video equipment\"}"))).get("categoryId").asLong();
+    }
+
+    @Test
+    void totalsFollowEveryWrite() throws Exception {
+        long speakerId = data(mockMvc.perform(post("/api/products").contentType(MediaType.APPLICATION_JSON)
+                .content(product("Speaker", audioId, 25.5, 4)))).get("productId").asLong();
+        assertTotalsMatchProducts();
+
+        mockMvc.perform(post("/api/products/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + product("Amplifier", audioId, 100, 2) + "," + product("Projector", videoId, 300, 1)
+                                + "," + product("Speaker", audioId, 1, 1) + "]"))
+                .andExpect(status().isOk());
+        assertTotalsMatchProducts();
+
+        // a rejected write leaves the totals alone
+        mockMvc.perform(post("/api/products").contentType(MediaType.APPLICATION_JSON).content(product("Speaker", audioId, 1, 1)))
+                .andExpect(status().isBadRequest());
+        assertTotalsMatchProducts();
+
+        // moved to another category with a new quantity
+        mockMvc.perform(put("/api/products/{id}", speakerId).contentType(MediaType.APPLICATION_JSON)
+                        .content(product("Speaker", videoId, 25.5, 7)))
+                .andExpect(status().isOk());
+        assertTotalsMatchProducts();
+
+        String etag = mockMvc.perform(get("/api/products/{id}", speakerId)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(patch("/api/products/{id}", speakerId).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"price\":30.0}"))
+                .andExpect(status().isOk());
+        // a stale tag is rejected and must not move the totals either
+        mockMvc.perform(patch("/api/products/{id}", speakerId).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"quantity\":1}"))
+                .andExpect(status().isPreconditionFailed());
+        assertTotalsMatchProducts();
+
+        mockMvc.perform(post("/api/products/{id}/stock/reserve", speakerId).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"quantity\":3}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/products/{id}/stock/release", speakerId).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"quantity\":1}"))
+                .andExpect(status().isOk());
+        assertTotalsMatchProducts();
+
+        mockMvc.perform(delete("/api/products/{id}", speakerId)).andExpect(status().isOk());
+        assertTotalsMatchProducts();
+
+        mockMvc.perform(get("/api/categories/aggregates"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].categoryName").value("Audio"))
+                .andExpect(jsonPath("$.data[0].productCount").value(1))
+                .andExpect(jsonPath("$.data[0].totalQuantity").value(2))
+                .andExpect(jsonPath("$.data[0].stockValue").value(200.0))
+                .andExpect(jsonPath("$.data[1].productCount").value(1));
+
+        mockMvc.perform(delete("/api/categories/{id}", videoId)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/categories/aggregates"))
+                .andExpect(jsonPath("$.data.length()").value(1));
+    }
+
+    @Test
+    void reconciliationRepairsTotalsChangedBehindTheServices() throws Exception {
+        mockMvc.perform(post("/api/products").contentType(MediaType.APPLICATION_JSON).content(product("Speaker", audioId, 10, 4)))
+                .andExpect(status().isCreated());
+        assertEquals(0, categoryStatsReconciler.reconcileAll());
+
+        Product product = productRepo.findAll().get(0);
+        product.setQuantity(40);
+        productRepo.save(product);
+
+        assertEquals(1, categoryStatsReconciler.reconcileAll());
+        assertTotalsMatchProducts();
+    }
+
+    // What the endpoint reports has to be what summing the products gives
+    private void assertTotalsMatchProducts() throws Exception {
+        mockMvc.perform(get("/api/categories/aggregates")).andExpect(status().isOk());
+        List<CategoryAggregate> aggregates = categoryStatsRepo.findAggregates();
+        assertEquals(2, aggregates.size());
+        for (CategoryAggregate aggregate : aggregates) {
+            CategoryTotals totals = productRepo.sumByCategoryId(aggregate.categoryId());
+            assertEquals(totals.productCount(), aggregate.productCount());
+            assertEquals(totals.totalQuantity(), aggregate.totalQuantity());
+            assertEquals(totals.stockValue(), aggregate.stockValue(), 0.001);
+        }
+    }
+
+    private static String product(String name, long categoryId, double price, int quantity) {
+        return "{\"productName\":\"" + name + "\",\"description\":\"" + name + " description\",\"price\":" + price
+                + ",\"quantity\":" + quantity + ",\"category\":{\"categoryId\":" + categoryId + "}}";
+    }
+
+    private JsonNode data(ResultActions result) throws Exception {
+        return objectMapper.readTree(result.andReturn().getResponse().getContentAsString()).get("data");
+    }
+}
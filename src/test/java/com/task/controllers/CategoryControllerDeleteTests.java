@@ -0,0 +1,117 @@
+package com.task.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.task.entities.Category;
+import com.task.entities.Product;
+import com.task.repositories.CategoryRepo;
+import com.task.repositories.ProductRepo;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A category delete removes its products with chunked bulk DELETEs, without loading them
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CategoryControllerDeleteTests {
+
+    private static final int PRODUCTS = 2_500;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    private long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        productRepo.deleteAllInBatch();
+        categoryRepo.deleteAllInBatch();
+
+        Category category = new Category();
+        category.setCategoryName("Large category");
+        category.setDescription("Large category description");
+        category = categoryRepo.save(category);
+        categoryId = category.getCategoryId();
+
+        List<Product> products = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setProductName("Product " + i);
+            product.setDescription("Product " + i + " description");
+            product.setPrice(10);
+            product.setQuantity(5);
+            product.setCategory(category);
+            products.add(product);
+        }
+        productRepo.saveAll(products);
+    }
+
+    @Test
+    void deleteUsesBulkStatementsOnly() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(delete("/api/categories/{id}", categoryId))
+                .andExpect(status().isOk());
+
+        // exists check, 3 id chunk SELECTs with their product DELETEs, the totals DELETE and the category DELETE
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getEntityDeleteCount());
+        assertEquals(9, statistics.getPrepareStatementCount());
+        assertEquals(0, productRepo.count());
+        assertFalse(categoryRepo.existsById(categoryId));
+    }
+
+    @Test
+    void asyncDeleteReturnsAJobToPoll() throws Exception {
+        String location = mockMvc.perform(delete("/api/categories/{id}", categoryId).param("async", "true"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(jsonPath("$.data.status").exists())
+                .andReturn().getResponse().getHeader("Location");
+
+        String state = "RUNNING";
+        for (int i = 0; i < 100 && state.equals("RUNNING"); i++) {
+            Thread.sleep(100);
+            String body = mockMvc.perform(get(location)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+            JsonNode data = objectMapper.readTree(body).get("data");
+            state = data.get("status").asText();
+        }
+
+        assertEquals("COMPLETED", state);
+        mockMvc.perform(get(location)).andExpect(jsonPath("$.data.productsDeleted").value(PRODUCTS));
+        assertEquals(0, productRepo.count());
+        assertFalse(categoryRepo.existsById(categoryId));
+    }
+}
@@ -0,0 +1,67 @@
+package com.task.controllers;
+
+import com.task.entities.Category;
+import com.task.entities.Product;
+import com.task.repositories.CategoryRepo;
+import com.task.repositories.ProductRepo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// With open-session-in-view off, reads still serialize their category and report how long they held a connection
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ConnectionHoldTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    @Test
+    void productReadRecordsConnectionHoldTime() throws Exception {
+        Category category = new Category();
+        category.setCategoryName("Hold category");
+        category.setDescription("Hold category description");
+        category = categoryRepo.save(category);
+
+        Product product = new Product();
+        product.setProductName("Hold product");
+        product.setDescription("Hold product description");
+        product.setPrice(10.0);
+        product.setQuantity(5);
+        product.setCategory(category);
+        long productId = productRepo.save(product).getProductId();
+
+        long before = holdCount();
+        mockMvc.perform(get("/api/products/{id}", productId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.category.categoryName").value("Hold category"));
+
+        assertEquals(before + 1, holdCount());
+    }
+
+    // the context is shared with the other MockMvc tests
+    private long holdCount() {
+        Timer hold = meterRegistry.find("app.request.connection.hold").tag("method", "getProduct").timer();
+        return hold == null ? 0 : hold.count();
+    }
+}
@@ -0,0 +1,106 @@
+package com.task.controllers;
+
+import com.task.entities.Category;
+import com.task.entities.Product;
+import com.task.repositories.CategoryRepo;
+import com.task.repositories.ProductRepo;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.StringJoiner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Multi-gets answer every id in request order from a single query
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class MultiGetTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    @Test
+    void productsAreReturnedInRequestOrderFromOneQuery() throws Exception {
+        Category category = new Category();
+        category.setCategoryName("Multi-get category");
+        category.setDescription("Multi-get category description");
+        category = categoryRepo.save(category);
+
+        long[] ids = new long[3];
+        for (int i = 0; i < ids.length; i++) {
+            Product product = new Product();
+            product.setProductName("Multi-get product " + i);
+            product.setDescription("Multi-get product " + i + " description");
+            product.setPrice(10.0);
+            product.setQuantity(5);
+            product.setCategory(category);
+            ids[i] = productRepo.save(product).getProductId();
+        }
+        long missingId = ids[2] + 1_000;
+
+        entityManagerFactory.getCache().evictAll();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/api/products").param("ids", ids[2] + "," + missingId + "," + ids[0]))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].id").value(ids[2]))
+                .andExpect(jsonPath("$.data[0].data.productName").value("Multi-get product 2"))
+                .andExpect(jsonPath("$.data[0].data.category.categoryName").value("Multi-get category"))
+                .andExpect(jsonPath("$.data[1].id").value(missingId))
+                .andExpect(jsonPath("$.data[1].success").value(false))
+                .andExpect(jsonPath("$.data[1].error.code").value(404))
+                .andExpect(jsonPath("$.data[2].id").value(ids[0]));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void categoriesAreReturnedInRequestOrder() throws Exception {
+        Category first = new Category();
+        first.setCategoryName("Multi-get first");
+        first.setDescription("Multi-get first description");
+        long firstId = categoryRepo.save(first).getCategoryId();
+        Category second = new Category();
+        second.setCategoryName("Multi-get second");
+        second.setDescription("Multi-get second description");
+        long secondId = categoryRepo.save(second).getCategoryId();
+
+        mockMvc.perform(get("/api/categories").param("ids", secondId + "," + firstId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].data.categoryName").value("Multi-get second"))
+                .andExpect(jsonPath("$.data[1].data.categoryName").value("Multi-get first"));
+    }
+
+    @Test
+    void idListIsCapped() throws Exception {
+        StringJoiner ids = new StringJoiner(",");
+        for (int i = 1; i <= 101; i++) {
+            ids.add(String.valueOf(i));
+        }
+        mockMvc.perform(get("/api/products").param("ids", ids.toString()))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/products").param("ids", "1,x"))
+                .andExpect(status().isBadRequest());
+    }
+}
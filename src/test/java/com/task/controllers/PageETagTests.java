@@ -0,0 +1,171 @@
+package com.task.controllers;
+
+import com.task.entities.Category;
+import com.task.entities.Product;
+import com.task.repositories.CategoryRepo;
+import com.task.repositories.ProductRepo;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The ETag of an offset page is computed by a versions query, the page by another one. Both read the same rows in
+// id order, so an unchanged page is answered 304 and a change to one of its rows is not.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PageETagTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private final List<Long> productIds = new ArrayList<>();
+    private final List<Long> categoryIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        productRepo.deleteAllInBatch();
+        categoryRepo.deleteAllInBatch();
+        productIds.clear();
+        categoryIds.clear();
+
+        for (int c = 1; c <= 3; c++) {
+            Category category = new Category();
+            category.setCategoryName("Paged category " + c);
+            category.setDescription("Paged category " + c + " description");
+            categoryIds.add(categoryRepo.save(category).getCategoryId());
+        }
+        // consecutive products in alternating categories, an order driven by the category join would interleave them
+        for (int p = 0; p < 6; p++) {
+            Product product = new Product();
+            product.setProductName("Paged product " + p);
+            product.setDescription("Paged product " + p + " description");
+            product.setPrice(10);
+            product.setQuantity(10);
+            product.setCategory(categoryRepo.getReferenceById(categoryIds.get(categoryIds.size() - 1 - p % 3)));
+            productIds.add(productRepo.save(product).getProductId());
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void productPageETagCoversTheRowsOfThePage() throws Exception {
+        // a tag that does not match runs the versions query and then the page query
+        String etag = mockMvc.perform(productPage().header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].productId").value(productIds.get(2)))
+                .andExpect(jsonPath("$.data[1].productId").value(productIds.get(3)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertBothOrderedBy("p(1_0\\.product_id|\\.productId)");
+
+        mockMvc.perform(productPage().header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // a row of another page leaves the tag alone
+        changeQuantity(productIds.get(5));
+        mockMvc.perform(productPage().header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        changeQuantity(productIds.get(3));
+        mockMvc.perform(productPage().header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+
+    @Test
+    void categoryPageETagCoversTheRowsOfThePage() throws Exception {
+        String etag = mockMvc.perform(categoryPage().header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].categoryId").value(categoryIds.get(2)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertBothOrderedBy("c(1_0\\.category_id|\\.categoryId)");
+
+        mockMvc.perform(categoryPage().header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        Category category = categoryRepo.findById(categoryIds.get(2)).orElseThrow();
+        category.setDescription("Changed description");
+        categoryRepo.save(category);
+        mockMvc.perform(categoryPage().header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+
+    @Test
+    void selectedFieldsPageETagCoversTheRowsOfThePage() throws Exception {
+        String etag = mockMvc.perform(productPage().param("fields", "productName")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].productName").value("Paged product 2"))
+                .andExpect(jsonPath("$.data[1].productName").value("Paged product 3"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertBothOrderedBy("p(1_0\\.product_id|\\.productId)");
+
+        mockMvc.perform(productPage().param("fields", "productName").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        statistics.clear();
+        mockMvc.perform(get("/api/categories").param("page", "2").param("size", "1").param("fields", "categoryName")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].categoryName").value("Paged category 3"));
+        assertBothOrderedBy("c(1_0\\.category_id|\\.categoryId)");
+    }
+
+    // H2 happens to return the rows in key order either way, MySQL does not without an ORDER BY
+    private void assertBothOrderedBy(String idColumn) {
+        List<String> queries = Arrays.stream(statistics.getQueries())
+                .filter(query -> !query.toLowerCase().contains("count("))    // the total of the category Page
+                .toList();
+        assertEquals(2, queries.size());
+        for (String query : queries) {
+            // the tuple queries select the id first and are ordered by its position
+            assertTrue(query.matches("(?is).* order by (1|" + idColumn + ")( asc)?( offset .*| fetch .*)?"), query);
+        }
+    }
+
+    private static MockHttpServletRequestBuilder productPage() {
+        return get("/api/products").param("page", "1").param("size", "2");
+    }
+
+    private static MockHttpServletRequestBuilder categoryPage() {
+        return get("/api/categories").param("page", "2").param("size", "1");
+    }
+
+    private void changeQuantity(long productId) {
+        Product product = productRepo.findById(productId).orElseThrow();
+        product.setQuantity(product.getQuantity() + 1);
+        productRepo.save(product);
+    }
+}
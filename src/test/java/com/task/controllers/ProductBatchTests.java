@@ -0,0 +1,142 @@
+package com.task.controllers;
+
+import com.task.entities.Category;
+import com.task.entities.Product;
+import com.task.repositories.CategoryRepo;
+import com.task.repositories.ProductRepo;
+import com.task.services.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Every item of a batch gets its own result in input order, the rejected ones do not stop the others
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProductBatchTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    private long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        productRepo.deleteAllInBatch();
+        categoryRepo.deleteAllInBatch();
+
+        Category category = new Category();
+        category.setCategoryName("Batch category");
+        category.setDescription("Batch category description");
+        categoryId = categoryRepo.save(category).getCategoryId();
+
+        Product existing = new Product();
+        existing.setProductName("Existing");
+        existing.setDescription("Existing description");
+        existing.setPrice(1.0);
+        existing.setQuantity(1);
+        existing.setCategory(category);
+        productRepo.save(existing);
+    }
+
+    @Test
+    void ndjsonItemsAreReportedOneByOneInInputOrder() throws Exception {
+        String body = String.join("\n",
+                product("First", categoryId),
+                "{\"productName\":",
+                product("Existing", categoryId),
+                product("Second", categoryId),
+                product("Second", categoryId),
+                product("Orphan", Long.MAX_VALUE),
+                "{\"description\":\"No name\",\"price\":1.0,\"quantity\":1,\"category\":{\"categoryId\":" + categoryId + "}}",
+                "",
+                product("Third", categoryId));
+
+        mockMvc.perform(post("/api/products/batch").contentType(MediaType.APPLICATION_NDJSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("3 of 8 products added successfully"))
+                .andExpect(jsonPath("$.data.length()").value(8))
+                .andExpect(jsonPath("$.data[0].index").value(0))
+                .andExpect(jsonPath("$.data[0].success").value(true))
+                .andExpect(jsonPath("$.data[1].error.details").value("Invalid JSON."))
+                .andExpect(jsonPath("$.data[2].error.details").value("Product name already exists."))
+                .andExpect(jsonPath("$.data[3].success").value(true))
+                .andExpect(jsonPath("$.data[4].error.details").value("Product name already exists."))
+                .andExpect(jsonPath("$.data[5].error.details").value("Product category not found in the system."))
+                .andExpect(jsonPath("$.data[6].error.details").value("Product name is required."))
+                .andExpect(jsonPath("$.data[7].index").value(7))
+                .andExpect(jsonPath("$.data[7].success").value(true));
+
+        assertEquals(Set.of("First", "Second", "Third"),
+                Set.copyOf(productRepo.findExistingProductNames(List.of("First", "Second", "Third"))));
+        assertEquals(4, productRepo.count());
+    }
+
+    @Test
+    void jsonArrayItemsAreReportedOneByOne() throws Exception {
+        String body = "[" + product("Alpha", categoryId) + "," + product("Alpha", categoryId) + ","
+                + product("Beta", Long.MAX_VALUE) + "]";
+
+        mockMvc.perform(post("/api/products/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].success").value(true))
+                .andExpect(jsonPath("$.data[1].error.details").value("Product name already exists."))
+                .andExpect(jsonPath("$.data[2].error.details").value("Product category not found in the system."));
+
+        mockMvc.perform(post("/api/products/batch").contentType(MediaType.APPLICATION_NDJSON).content("\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void ndjsonBodyIsReadOutsideTheTransaction() {
+        AtomicBoolean readInTransaction = new AtomicBoolean();
+        byte[] body = (product("Streamed", categoryId) + "\n").getBytes(StandardCharsets.UTF_8);
+        FilterInputStream upload = new FilterInputStream(new ByteArrayInputStream(body)) {
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                    readInTransaction.set(true);
+                }
+                return super.read(buffer, offset, length);
+            }
+        };
+
+        assertEquals(200, productService.addProductsNdjson(upload).getStatusCode().value());
+        assertFalse(readInTransaction.get());
+        assertEquals(List.of("Streamed"), productRepo.findExistingProductNames(List.of("Streamed")));
+    }
+
+    private static String product(String name, long categoryId) {
+        return "{\"productName\":\"" + name + "\",\"description\":\"" + name + " description\",\"price\":10.0,"
+                + "\"quantity\":2,\"category\":{\"categoryId\":" + categoryId + "}}";
+    }
+}
@@ -0,0 +1,330 @@
+package com.task.controllers;
+
+import com.task.entities.Category;
+import com.task.entities.Product;
+import com.task.repositories.CategoryRepo;
+import com.task.repositories.ProductRepo;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Asserts the number of SQL statements each product read endpoint issues, a page of products must be one round trip
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProductControllerStatementCountTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    private Statistics statistics;
+
+    private long productId;
+
+    @BeforeEach
+    void setUp() {
+        productRepo.deleteAllInBatch();
+        categoryRepo.deleteAllInBatch();
+
+        // products spread over several categories so an N+1 would show up as extra statements
+        for (int c = 1; c <= 3; c++) {
+            Category category = new Category();
+            category.setCategoryName("Category " + c);
+            category.setDescription("Category " + c + " description");
+            category = categoryRepo.save(category);
+
+            for (int p = 1; p <= 2; p++) {
+                Product product = new Product();
+                product.setProductName("Product " + c + "-" + p);
+                product.setDescription("Product " + c + "-" + p + " description");
+                product.setPrice(10.0 * p);
+                product.setQuantity(5);
+                product.setCategory(category);
+                productId = productRepo.save(product).getProductId();
+            }
+        }
+
+        // start every test with a cold second-level cache
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void offsetPageIsOneStatement() throws Exception {
+        mockMvc.perform(get("/api/products").param("page", "0").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(5))
+                .andExpect(jsonPath("$.data[0].category.categoryName").exists());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void keysetPageIsOneStatement() throws Exception {
+        mockMvc.perform(get("/api/products").param("after", "").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(5))
+                .andExpect(jsonPath("$.data[4].category.categoryName").exists())
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void singleProductIsOneStatement() throws Exception {
+        mockMvc.perform(get("/api/products/{id}", productId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.category.categoryName").value("Category 3"));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void repeatedProductLookupIsServedFromSecondLevelCache() throws Exception {
+        mockMvc.perform(get("/api/products/{id}", productId)).andExpect(status().isOk());
+        statistics.clear();
+
+        mockMvc.perform(get("/api/products/{id}", productId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.category.categoryName").value("Category 3"));
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void unchangedProductIsAnswered304FromItsVersionOnly() throws Exception {
+        String etag = mockMvc.perform(get("/api/products/{id}", productId))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        statistics.clear();
+
+        mockMvc.perform(get("/api/products/{id}", productId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+
+        // the version projection only, no product or category is loaded
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void changedProductGetsANewETag() throws Exception {
+        String etag = mockMvc.perform(get("/api/products/{id}", productId))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        Product product = productRepo.findById(productId).orElseThrow();
+        product.setQuantity(product.getQuantity() + 1);
+        productRepo.save(product);
+
+        mockMvc.perform(get("/api/products/{id}", productId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.quantity").value(6))
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+
+    @Test
+    void unchangedKeysetPageIsAnswered304() throws Exception {
+        String etag = mockMvc.perform(get("/api/products").param("after", "").param("size", "5"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        statistics.clear();
+
+        mockMvc.perform(get("/api/products").param("after", "").param("size", "5").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void patchIsOneConditionalUpdate() throws Exception {
+        String etag = mockMvc.perform(get("/api/products/{id}", productId))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        statistics.clear();
+
+        String newEtag = mockMvc.perform(patch("/api/products/{id}", productId).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"quantity\":42}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // the conditional UPDATE, with the product taken out of its category totals before and added back after
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(42, productRepo.findById(productId).orElseThrow().getQuantity());
+
+        // the returned tag is the one of the new representation
+        mockMvc.perform(get("/api/products/{id}", productId).header(HttpHeaders.IF_NONE_MATCH, newEtag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void staleIfMatchIsRejected() throws Exception {
+        String etag = mockMvc.perform(get("/api/products/{id}", productId))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(patch("/api/products/{id}", productId).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"quantity\":7}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(patch("/api/products/{id}", productId).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"quantity\":8}"))
+                .andExpect(status().isPreconditionFailed());
+
+        long categoryId = productRepo.findById(productId).orElseThrow().getCategory().getCategoryId();
+        String body = "{\"productName\":\"Renamed\",\"category\":{\"categoryId\":" + categoryId
+                + "},\"price\":10,\"quantity\":1,\"description\":\"renamed\"}";
+        mockMvc.perform(put("/api/products/{id}", productId).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(patch("/api/products/{id}", productId)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"quantity\":8}"))
+                .andExpect(status().isPreconditionRequired());
+
+        assertEquals(7, productRepo.findById(productId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void stockReservationIsOneAtomicUpdate() throws Exception {
+        mockMvc.perform(post("/api/products/{id}/stock/reserve", productId)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"quantity\":3}"))
+                .andExpect(status().isOk());
+
+        // the stock UPDATE and the UPDATE of the category totals
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        mockMvc.perform(post("/api/products/{id}/stock/reserve", productId)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"quantity\":3}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error.details").value("Insufficient stock."));
+
+        mockMvc.perform(post("/api/products/{id}/stock/release", productId)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"quantity\":1}"))
+                .andExpect(status().isOk());
+
+        assertEquals(3, productRepo.findById(productId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void duplicateNameIsRejectedByTheUniqueConstraint() throws Exception {
+        long categoryId = categoryRepo.findAll().get(0).getCategoryId();
+        String body = "{\"productName\":\"Product 1-1\",\"category\":{\"categoryId\":" + categoryId
+                + "},\"price\":10,\"quantity\":1,\"description\":\"duplicate\"}";
+
+        mockMvc.perform(post("/api/products").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error.details").value("Product name already exists."));
+
+        // no name lookup before the insert: the category read and the rejected insert
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void selectedFieldsAreOneStatementWithoutEntities() throws Exception {
+        String etag = mockMvc.perform(get("/api/products").param("after", "").param("size", "5")
+                        .param("fields", "productId,productName,price"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(5))
+                .andExpect(jsonPath("$.data[0].productName").value("Product 1-1"))
+                .andExpect(jsonPath("$.data[0].price").value(10.0))
+                .andExpect(jsonPath("$.data[0].description").doesNotExist())
+                .andExpect(jsonPath("$.data[0].category").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+
+        // the tag of a selection differs from the one of the full page
+        mockMvc.perform(get("/api/products").param("after", "").param("size", "5").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/products").param("after", "").param("size", "5")
+                        .param("fields", "productId,productName,price").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/api/products").param("fields", "categoryName,quantity"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].categoryName").exists())
+                .andExpect(jsonPath("$.data[0].productId").doesNotExist());
+
+        mockMvc.perform(get("/api/products").param("fields", "productName,version"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error.details").value(containsString("Unknown field: version.")));
+    }
+
+    @Test
+    void searchIsOneStatement() throws Exception {
+        long categoryId = productRepo.findById(productId).orElseThrow().getCategory().getCategoryId();
+        statistics.clear();
+
+        mockMvc.perform(get("/api/products/search").param("categoryId", String.valueOf(categoryId))
+                        .param("minPrice", "5").param("inStock", "true").param("sort", "price,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(2))
+                .andExpect(jsonPath("$.data[0].price").value(20.0))
+                .andExpect(jsonPath("$.data[1].price").value(10.0))
+                .andExpect(jsonPath("$.data[0].category.categoryName").value("Category 3"));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        mockMvc.perform(get("/api/products/search").param("inStock", "true"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/products/search").param("namePrefix", "Product").param("sort", "description"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void envelopesKeepTheirJsonShape() throws Exception {
+        mockMvc.perform(get("/api/products/{id}", productId + 1000))
+                .andExpect(status().isNotFound())
+                .andExpect(content().json("{\"success\":false,\"error\":{\"code\":404,\"details\":\"Product not found in the system.\"}}", true));
+
+        // the last keyset page still carries an explicit null cursor
+        mockMvc.perform(get("/api/products").param("after", "").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.length()").value(6))
+                .andExpect(content().string(containsString("\"nextCursor\":null")));
+    }
+
+    @Test
+    void cacheCountersAreExposed() throws Exception {
+        mockMvc.perform(get("/api/products/{id}", productId)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/cache/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data['com.task.entities.Product'].misses").isNumber())
+                .andExpect(jsonPath("$.data['com.task.entities.Product'].evictions").isNumber());
+    }
+}
@@ -0,0 +1,164 @@
+package com.task.controllers;
+
+import com.task.entities.Category;
+import com.task.entities.Product;
+import com.task.repositories.CategoryRepo;
+import com.task.repositories.ProductRepo;
+import com.task.services.ProductService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The export streams every product as one NDJSON line in id order, plain or gzip encoded, without keeping the
+// exported products in the persistence context
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProductExportTests {
+
+    private static final int PRODUCTS = 250;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        productRepo.deleteAllInBatch();
+        categoryRepo.deleteAllInBatch();
+
+        Category category = new Category();
+        category.setCategoryName("Export category");
+        category.setDescription("Export category description");
+        category = categoryRepo.save(category);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setProductName("Exported " + i);
+            product.setDescription("Exported product " + i);
+            product.setPrice(i);
+            product.setQuantity(i);
+            product.setCategory(category);
+            products.add(product);
+        }
+        productRepo.saveAll(products);
+    }
+
+    @Test
+    void exportsOneLinePerProductInIdOrder() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/products/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        assertLinesInIdOrder(body);
+    }
+
+    @Test
+    void gzipExportIsContentEncoded() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/products/export").param("gzip", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] compressed = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertLinesInIdOrder(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void exportedProductsDoNotStayInThePersistenceContext() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        AtomicInteger mostManaged = new AtomicInteger();
+
+        // the export joins this transaction, so its persistence context can be looked at while it writes
+        int managedAfter = transaction.execute(status -> {
+            OutputStream out = new ByteArrayOutputStream() {
+                @Override
+                public void write(byte[] bytes, int offset, int length) {
+                    mostManaged.accumulateAndGet(managedProducts(), Math::max);
+                    super.write(bytes, offset, length);
+                }
+            };
+            try {
+                productService.exportProducts(out);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return managedProducts();
+        });
+
+        assertEquals(0, managedAfter);
+        assertTrue(mostManaged.get() <= 1, "products managed during the export: " + mostManaged.get());
+    }
+
+    private int managedProducts() {
+        return (int) entityManager.unwrap(Session.class).getStatistics().getEntityKeys().stream()
+                .filter(key -> ((EntityKey) key).getEntityName().equals(Product.class.getName()))
+                .count();
+    }
+
+    private static void assertLinesInIdOrder(String body) {
+        String[] lines = body.split("\n");
+        assertEquals(PRODUCTS, lines.length);
+        long previousId = -1;
+        for (String line : lines) {
+            long productId = Long.parseLong(line.replaceAll(".*\"productId\":(\\d+).*", "$1"));
+            assertTrue(productId > previousId, "out of order: " + productId + " after " + previousId);
+            assertTrue(line.startsWith("{") && line.endsWith("}"), line);
+            previousId = productId;
+        }
+    }
+}
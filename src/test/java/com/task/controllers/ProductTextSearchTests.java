@@ -0,0 +1,150 @@
+package com.task.controllers;
+
+import com.task.entities.Category;
+import com.task.entities.Product;
+import com.task.repositories.CategoryRepo;
+import com.task.repositories.ProductRepo;
+import com.task.services.ProductIndexer;
+import com.task.services.ProductTextIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The text index follows the writes of the services (searchable once reopened) and ranks exact, prefix and misspelt
+// matches
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProductTextSearchTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    @Autowired
+    private ProductIndexer productIndexer;
+
+    @Autowired
+    private ProductTextIndex productTextIndex;
+
+    private long categoryId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        productRepo.deleteAllInBatch();
+        categoryRepo.deleteAllInBatch();
+
+        Category category = new Category();
+        category.setCategoryName("Audio");
+        category.setDescription("Audio equipment");
+        categoryId = categoryRepo.save(category).getCategoryId();
+
+        // written behind the services' back, picked up by the rebuild
+        save("Wireless Headphones", "Over-ear bluetooth headphones with noise cancelling");
+        save("Wired Earbuds", "In-ear earbuds with a braided cable");
+        save("Bookshelf Speaker", "Passive speaker, pairs well with wireless amplifiers");
+        productIndexer.rebuild();
+    }
+
+    @Test
+    void ranksExactPrefixAndMisspeltMatches() throws Exception {
+        // name matches outrank description matches
+        mockMvc.perform(get("/api/products/text-search").param("q", "wireless"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(2)))
+                .andExpect(jsonPath("$.data[0].productName").value("Wireless Headphones"))
+                .andExpect(jsonPath("$.data[1].productName").value("Bookshelf Speaker"));
+
+        mockMvc.perform(get("/api/products/text-search").param("q", "headph"))
+                .andExpect(jsonPath("$.data[0].productName").value("Wireless Headphones"));
+
+        mockMvc.perform(get("/api/products/text-search").param("q", "earbds braided"))
+                .andExpect(jsonPath("$.data", hasSize(1)))
+                .andExpect(jsonPath("$.data[0].productName").value("Wired Earbuds"))
+                .andExpect(jsonPath("$.data[0].categoryId").value(categoryId));
+
+        mockMvc.perform(get("/api/products/text-search").param("q", "toaster"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", empty()));
+
+        mockMvc.perform(get("/api/products/text-search").param("q", " "))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/products/text-search").param("q", "wireless").param("limit", "101"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void followsTheWritesOfTheServices() throws Exception {
+        String created = mockMvc.perform(post("/api/products").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"productName\":\"Studio Monitor\",\"description\":\"Active nearfield monitor\","
+                                + "\"price\":199.0,\"quantity\":3,\"category\":{\"categoryId\":" + categoryId + "}}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long productId = Long.parseLong(created.replaceAll(".*\"productId\":(\\d+).*", "$1"));
+
+        productTextIndex.awaitWrites();
+        mockMvc.perform(get("/api/products/text-search").param("q", "nearfield"))
+                .andExpect(jsonPath("$.data[0].productId").value(productId));
+
+        mockMvc.perform(put("/api/products/{id}", productId).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"productName\":\"Reference Monitor\",\"description\":\"Active nearfield monitor\","
+                                + "\"price\":199.0,\"quantity\":3,\"category\":{\"categoryId\":" + categoryId + "}}"))
+                .andExpect(status().isOk());
+        productTextIndex.awaitWrites();
+        mockMvc.perform(get("/api/products/text-search").param("q", "studio"))
+                .andExpect(jsonPath("$.data", empty()));
+
+        String etag = mockMvc.perform(get("/api/products/{id}", productId))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(patch("/api/products/{id}", productId).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"productName\":\"Mastering Monitor\"}"))
+                .andExpect(status().isOk());
+        productTextIndex.awaitWrites();
+        mockMvc.perform(get("/api/products/text-search").param("q", "mastering"))
+                .andExpect(jsonPath("$.data[0].productId").value(productId));
+
+        mockMvc.perform(delete("/api/products/{id}", productId))
+                .andExpect(status().isOk());
+        productTextIndex.awaitWrites();
+        mockMvc.perform(get("/api/products/text-search").param("q", "mastering"))
+                .andExpect(jsonPath("$.data", empty()));
+
+        // the category cascade removes the rest, once its transaction has committed
+        mockMvc.perform(delete("/api/categories/{id}", categoryId))
+                .andExpect(status().isOk());
+        productTextIndex.awaitWrites();
+        mockMvc.perform(get("/api/products/text-search").param("q", "wireless"))
+                .andExpect(jsonPath("$.data", empty()));
+    }
+
+    private void save(String name, String description) {
+        Product product = new Product();
+        product.setProductName(name);
+        product.setDescription(description);
+        product.setPrice(10.0);
+        product.setQuantity(5);
+        product.setCategory(categoryRepo.getReferenceById(categoryId));
+        productRepo.save(product);
+    }
+}
@@ -0,0 +1,84 @@
+package com.task.repositories;
+
+import com.task.entities.Category;
+import com.task.entities.Product;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Stock reservations and PATCH evict only the product they change, the rest of the Product cache region stays
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductCacheEvictionTests {
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void singleRowUpdatesKeepTheOtherProductsCached() {
+        Category category = new Category();
+        category.setCategoryName("Cached category");
+        category.setDescription("Cached category description");
+        category = categoryRepo.save(category);
+        long cachedId = save(category, "Cached product").getProductId();
+        long changedId = save(category, "Changed product").getProductId();
+
+        Cache cache = entityManagerFactory.getCache();
+        productRepo.findById(cachedId);
+        productRepo.findById(changedId);
+        assertTrue(cache.contains(Product.class, cachedId));
+        assertTrue(cache.contains(Product.class, changedId));
+
+        assertEquals(1, productRepo.reserveStock(changedId, 2, now()));
+        assertTrue(cache.contains(Product.class, cachedId));
+        assertFalse(cache.contains(Product.class, changedId));
+        Product changed = productRepo.findById(changedId).orElseThrow();
+        assertEquals(8, changed.getQuantity());
+
+        assertEquals(1, productRepo.releaseStock(changedId, 1, now()));
+        assertTrue(cache.contains(Product.class, cachedId));
+        assertEquals(9, productRepo.findById(changedId).orElseThrow().getQuantity());
+
+        long version = productRepo.findById(changedId).orElseThrow().getVersion();
+        assertEquals(1, productRepo.patchProduct(changedId, version, "Patched product", null, null, null, now()));
+        assertTrue(cache.contains(Product.class, cachedId));
+        Product patched = productRepo.findById(changedId).orElseThrow();
+        assertEquals("Patched product", patched.getProductName());
+        assertEquals(9, patched.getQuantity());
+        assertEquals(version + 1, patched.getVersion());
+
+        // a reservation that changes nothing evicts nothing
+        assertEquals(0, productRepo.reserveStock(changedId, 100, now()));
+        assertTrue(cache.contains(Product.class, changedId));
+    }
+
+    private Product save(Category category, String name) {
+        Product product = new Product();
+        product.setProductName(name);
+        product.setDescription(name + " description");
+        product.setPrice(10);
+        product.setQuantity(10);
+        product.setCategory(category);
+        return productRepo.save(product);
+    }
+
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+}
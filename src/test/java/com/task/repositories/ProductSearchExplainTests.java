@@ -0,0 +1,130 @@
+package com.task.repositories;
+
+import com.task.entities.Category;
+import com.task.entities.Product;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.task.repositories.ProductSpecifications.inCategory;
+import static com.task.repositories.ProductSpecifications.inStock;
+import static com.task.repositories.ProductSpecifications.nameStartsWith;
+import static com.task.repositories.ProductSpecifications.priceAtLeast;
+import static com.task.repositories.ProductSpecifications.priceAtMost;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs EXPLAIN on the SQL Hibernate generates for every supported search filter combination: each one has to be
+// answered from an index of the products table, never from a scan of the whole table
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.task.repositories.ProductSearchExplainTests$LastStatement")
+@ActiveProfiles("test")
+class ProductSearchExplainTests {
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        productRepo.deleteAllInBatch();
+        categoryRepo.deleteAllInBatch();
+
+        List<Product> products = new ArrayList<>();
+        for (int c = 1; c <= 4; c++) {
+            Category category = new Category();
+            category.setCategoryName("Category " + c);
+            category.setDescription("Category " + c + " description");
+            category = categoryRepo.save(category);
+            categoryId = category.getCategoryId();
+
+            for (int p = 1; p <= 50; p++) {
+                Product product = new Product();
+                product.setProductName("Product " + c + "-" + p);
+                product.setDescription("Product " + c + "-" + p + " description");
+                product.setPrice(p);
+                product.setQuantity(p % 5);
+                product.setCategory(category);
+                products.add(product);
+            }
+        }
+        productRepo.saveAll(products);
+    }
+
+    @Test
+    void everyFilterCombinationUsesAnIndex() throws Exception {
+        List<Specification<Product>> searches = List.of(
+                inCategory(categoryId),
+                inCategory(categoryId).and(priceAtLeast(10)).and(priceAtMost(20)),
+                inCategory(categoryId).and(nameStartsWith("Product 4-1")),
+                priceAtLeast(10).and(priceAtMost(20)),
+                nameStartsWith("Product 4-1"),
+                inCategory(categoryId).and(priceAtMost(20)).and(inStock()),
+                priceAtLeast(45).and(inStock()),
+                nameStartsWith("Product 4-1").and(inStock()));
+
+        for (Specification<Product> search : searches) {
+            assertFalse(productRepo.search(search, PageRequest.of(0, 10, Sort.by("price", "productId"))).isEmpty());
+            String plan = explain(LastStatement.sql);
+            assertFalse(plan.contains("products.tableScan"), () -> "Full scan of products in:\n" + plan);
+        }
+    }
+
+    @Test
+    void namePrefixIsMatchedLiterally() {
+        assertEquals(11, productRepo.search(nameStartsWith("Product 4-1"), PageRequest.of(0, 20)).getNumberOfElements());
+        assertTrue(productRepo.search(nameStartsWith("Product 4_1"), PageRequest.of(0, 20)).isEmpty());
+        assertTrue(productRepo.search(nameStartsWith("%"), PageRequest.of(0, 20)).isEmpty());
+    }
+
+    // The plan depends on the kind of condition, not on the values: a prefix pattern for the text parameters
+    // (the LIKE), 1 for the numbers
+    private String explain(String sql) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            ParameterMetaData parameters = statement.getParameterMetaData();
+            for (int i = 1; i <= parameters.getParameterCount(); i++) {
+                statement.setObject(i, parameters.getParameterType(i) == Types.VARCHAR ? "Product 4-1%" : 1);
+            }
+            try (ResultSet plan = statement.executeQuery()) {
+                plan.next();
+                return plan.getString(1);
+            }
+        }
+    }
+
+    // Keeps the last SQL statement Hibernate prepared
+    public static final class LastStatement implements StatementInspector {
+
+        static volatile String sql;
+
+        @Override
+        public String inspect(String statement) {
+            sql = statement;
+            return statement;
+        }
+    }
+}
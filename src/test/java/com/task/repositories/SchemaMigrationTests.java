@@ -0,0 +1,63 @@
+package com.task.repositories;
+
+import com.task.entities.Category;
+import com.task.entities.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The other tests generate their schema from the mappings. Here the Flyway migrations build it, on H2 in MySQL mode
+// with the MySQL dialect (products_seq is a table, as on MySQL), and Hibernate validates the entities against it.
+// The context only starts when every mapped table, column and generator has its migration.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:migrations;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.jakarta.persistence.database-product-name=MySQL",
+        "spring.jpa.properties.jakarta.persistence.database-major-version=8",
+        "spring.jpa.properties.jakarta.persistence.database-minor-version=0"})
+@ActiveProfiles("test")
+class SchemaMigrationTests {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void migratedSchemaMatchesTheEntities() {
+        assertEquals(0, flyway.info().pending().length);
+        assertEquals(flyway.info().all().length, flyway.info().applied().length);
+
+        Category category = new Category();
+        category.setCategoryName("Migrated category");
+        category.setDescription("Migrated category description");
+        category = categoryRepo.save(category);
+
+        Product product = new Product();
+        product.setProductName("Migrated product");
+        product.setDescription("Migrated product description");
+        product.setPrice(10);
+        product.setQuantity(1);
+        product.setCategory(category);
+        product = productRepo.save(product);
+
+        // the id comes from the products_seq table, the timestamps keep their microseconds in DATETIME(6)
+        entityManagerFactory.getCache().evictAll();
+        Product stored = productRepo.findById(product.getProductId()).orElseThrow();
+        assertEquals(product.getUpdatedAt(), stored.getUpdatedAt());
+        assertEquals(category.getCategoryId(), stored.getCategory().getCategoryId());
+    }
+}
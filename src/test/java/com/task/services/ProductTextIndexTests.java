@@ -0,0 +1,70 @@
+package com.task.services;
+
+import com.task.config.TextSearchProperties;
+import com.task.dto.ProductIndexEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// An index on disk is kept across restarts when it was closed cleanly, writes become searchable on the reopen thread
+class ProductTextIndexTests {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void cleanlyClosedIndexIsReusedAndACrashedOneIsNot() throws Exception {
+        Path path = directory.resolve("index");
+        ProductTextIndex index = open(path);
+        assertFalse(index.isCurrent());
+        index.index(List.of(new ProductIndexEntry(1, "Wireless Headphones", "Over-ear headphones", 1)));
+        index.commit();
+
+        // the files of a process that died here, after the commit
+        Path crashed = directory.resolve("crashed");
+        copy(path, crashed);
+
+        index.destroy();
+        ProductTextIndex reopened = open(path);
+        assertTrue(reopened.isCurrent());
+        assertEquals(1, reopened.size());
+        reopened.destroy();
+
+        ProductTextIndex afterCrash = open(crashed);
+        assertFalse(afterCrash.isCurrent());
+        afterCrash.destroy();
+    }
+
+    @Test
+    void writesBecomeSearchableWithoutARefreshPerWrite() throws Exception {
+        ProductTextIndex index = open(directory.resolve("index"));
+        index.index(List.of(new ProductIndexEntry(1, "Studio Monitor", "Active nearfield monitor", 1)));
+        index.awaitWrites();
+        assertEquals(1, index.search("nearfield", 10).size());
+        index.destroy();
+    }
+
+    private static ProductTextIndex open(Path path) throws IOException {
+        return new ProductTextIndex(new TextSearchProperties(path.toString(), TextSearchProperties.Rebuild.IF_NEEDED,
+                1, 0, Duration.ofMinutes(1)));
+    }
+
+    private static void copy(Path from, Path to) throws IOException {
+        Files.createDirectories(to);
+        try (Stream<Path> files = Files.list(from)) {
+            for (Path file : files.filter(f -> !f.getFileName().toString().equals("write.lock")).toList()) {
+                Files.copy(file, to.resolve(file.getFileName()));
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.task.services;
+
+import com.task.entities.Category;
+import com.task.entities.Product;
+import com.task.repositories.CategoryRepo;
+import com.task.repositories.ProductRepo;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// N simultaneous GETs of one product or category run one query and get the same response. Every query is slowed
+// down while a test runs so that the requests really overlap.
+@SpringBootTest(properties = {"app.read-coalescing.ttl=PT0S",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false"})
+@ActiveProfiles("test")
+class ReadCoalescingTests {
+
+    private static final int CLIENTS = 32;
+    private static final long QUERY_LATENCY_MS = 200;
+
+    private static volatile boolean slowQueries;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void tearDown() {
+        slowQueries = false;
+    }
+
+    @Test
+    void simultaneousProductReadsShareOneQuery() throws Exception {
+        Category category = saveCategory("Coalesced category");
+        Product product = new Product();
+        product.setProductName("Coalesced product");
+        product.setDescription("Coalesced product description");
+        product.setPrice(10.0);
+        product.setQuantity(5);
+        product.setCategory(category);
+        long productId = productRepo.save(product).getProductId();
+
+        Statistics statistics = statistics();
+        List<ResponseEntity<?>> responses = simultaneously(() -> productService.getProduct(productId));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        responses.forEach(response -> assertSame(responses.get(0), response));
+        assertEquals(200, responses.get(0).getStatusCode().value());
+
+        // with a ttl of 0 nothing is kept once the load completed
+        productService.getProduct(productId);
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void simultaneousCategoryReadsShareOneQuery() throws Exception {
+        long categoryId = saveCategory("Coalesced category 2").getCategoryId();
+
+        Statistics statistics = statistics();
+        List<ResponseEntity<?>> responses = simultaneously(() -> categoryService.getCategory(categoryId));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        responses.forEach(response -> assertSame(responses.get(0), response));
+    }
+
+    @Test
+    void failedLoadIsSharedButNotKept() throws Exception {
+        SingleFlight<Long, String> flights = new SingleFlight<>(Duration.ofMinutes(1), 100);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> first = executor.submit(() -> flights.get(1L, () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(fail);
+            throw new IllegalStateException("database down");
+        }));
+        loading.await();
+        Future<?> waiter = executor.submit(() -> flights.get(1L, () -> {
+            loads.incrementAndGet();
+            return "loaded by the waiter";
+        }));
+        Thread.sleep(QUERY_LATENCY_MS);     // the waiter is now joined to the first load
+        fail.countDown();
+
+        for (Future<?> call : List.of(first, waiter)) {
+            Exception e = assertThrows(Exception.class, call::get);
+            assertEquals(IllegalStateException.class, e.getCause().getClass());
+        }
+        assertEquals(1, loads.get());
+        executor.shutdown();
+
+        // the failure is not kept
+        assertEquals("loaded again", flights.get(1L, () -> "loaded again"));
+    }
+
+    private List<ResponseEntity<?>> simultaneously(Supplier<ResponseEntity<?>> read) throws Exception {
+        slowQueries = true;
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ResponseEntity<?>>> calls = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            calls.add(executor.submit(() -> {
+                start.await();
+                return read.get();
+            }));
+        }
+        start.countDown();
+        List<ResponseEntity<?>> responses = new ArrayList<>();
+        for (Future<ResponseEntity<?>> call : calls) {
+            responses.add(call.get());
+        }
+        executor.shutdown();
+        return responses;
+    }
+
+    private Category saveCategory(String name) {
+        Category category = new Category();
+        category.setCategoryName(name);
+        category.setDescription(name + " description");
+        return categoryRepo.save(category);
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @TestConfiguration
+    static class SlowQueryConfig {
+
+        // Wraps the pool so that every statement execution blocks for QUERY_LATENCY_MS while slowQueries is set
+        @Bean
+        static BeanPostProcessor slowQueryPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource) {
+                        return new DelegatingDataSource(dataSource) {
+                            @Override
+                            public Connection getConnection() throws SQLException {
+                                return slowed(Connection.class, super.getConnection());
+                            }
+                        };
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T slowed(Class<T> type, T target) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                if (slowQueries && method.getName().startsWith("execute")) {
+                    Thread.sleep(QUERY_LATENCY_MS);
+                }
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+                if (result instanceof PreparedStatement statement) {
+                    return slowed(PreparedStatement.class, statement);
+                }
+                return result;
+            });
+        }
+    }
+}
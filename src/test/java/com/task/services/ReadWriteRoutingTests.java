@@ -0,0 +1,339 @@
+package com.task.services;
+
+import com.task.config.ReadWriteRouting;
+import com.task.dto.ProductPatch;
+import com.task.dto.StockChange;
+import com.task.entities.Category;
+import com.task.entities.Product;
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Two in-memory H2 databases stand in for the primary and a replica. The replica only sees the primary's rows after
+// replicate(), and the hikaricp.connections.usage count of each pool tells which one a service method used.
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadWriteRoutingTests.PRIMARY_URL,
+        "app.datasource.routing.enabled=true",
+        "app.datasource.routing.replicas[0].url=" + ReadWriteRoutingTests.REPLICA_URL,
+        "app.datasource.routing.replicas[0].username=sa",
+        "app.datasource.routing.replicas[0].password=",
+        "app.datasource.routing.sticky-window=PT1M",
+        // every read has to reach a database to show where it went
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        // the replica has no tables until the first replicate()
+        "app.search.text.rebuild=never"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReadWriteRoutingTests {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private static final String PRIMARY_POOL = "primary";
+    private static final String REPLICA_POOL = "primary-replica-0";
+    private static final long QUERY_LATENCY_MS = 300;
+
+    private static volatile boolean slowQueries;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TaskDecorator taskDecorator;
+
+    @Test
+    void readsGoToTheReplicaAndWritesToThePrimary() throws Exception {
+        Category category = new Category();
+        category.setCategoryName("Routing category");
+        category.setDescription("Routing category description");
+        ResponseEntity<?> added = on(PRIMARY_POOL, () -> categoryService.addCategory(category));
+        assertEquals(201, added.getStatusCode().value());
+        long categoryId = category.getCategoryId();
+
+        Product product = new Product();
+        product.setProductName("Routing product");
+        product.setDescription("Routing product description");
+        product.setPrice(10.0);
+        product.setQuantity(5);
+        product.setCategory(category);
+        on(PRIMARY_POOL, () -> productService.addProduct(product));
+        long productId = product.getProductId();
+
+        // not replicated yet: the replica does not know the product
+        assertEquals(404, on(REPLICA_POOL, () -> productService.getProduct(productId)).getStatusCode().value());
+
+        replicate();
+        assertEquals(200, on(REPLICA_POOL, () -> productService.getProduct(productId)).getStatusCode().value());
+        assertEquals(200, on(REPLICA_POOL, () -> productService.getAllProducts(0, 5)).getStatusCode().value());
+        assertEquals(200, on(REPLICA_POOL, () -> productService.getProductsAfter("", 5)).getStatusCode().value());
+        assertEquals(200, on(REPLICA_POOL, () -> productService.getProductsByIds(String.valueOf(productId))).getStatusCode().value());
+        assertEquals(200, on(REPLICA_POOL, () -> categoryService.getCategory(categoryId)).getStatusCode().value());
+        assertEquals(200, on(REPLICA_POOL, () -> categoryService.getAllCategories(0, 5)).getStatusCode().value());
+        assertEquals(200, on(REPLICA_POOL, () -> categoryService.getCategoryAggregates()).getStatusCode().value());
+
+        assertEquals(200, on(PRIMARY_POOL, () -> productService.deleteProduct(productId)).getStatusCode().value());
+    }
+
+    @Test
+    void writesReadAndWriteOnThePrimary() throws Exception {
+        Category category = new Category();
+        category.setCategoryName("Written category");
+        category.setDescription("Written category description");
+        on(PRIMARY_POOL, () -> categoryService.addCategory(category));
+        long categoryId = category.getCategoryId();
+        Product product = new Product();
+        product.setProductName("Written product");
+        product.setDescription("Written product description");
+        product.setPrice(10.0);
+        product.setQuantity(5);
+        product.setCategory(category);
+        on(PRIMARY_POOL, () -> productService.addProduct(product));
+        long productId = product.getProductId();
+        // the replica has the rows, a read of the writes on it would succeed too
+        replicate();
+
+        Category categoryUpdate = new Category();
+        categoryUpdate.setCategoryName("Renamed category");
+        categoryUpdate.setDescription("Renamed category description");
+        assertEquals(200, on(PRIMARY_POOL, () -> categoryService.updateCategory(categoryId, categoryUpdate, null))
+                .getStatusCode().value());
+
+        Product productUpdate = new Product();
+        productUpdate.setProductName("Renamed product");
+        productUpdate.setDescription("Renamed product description");
+        productUpdate.setPrice(12.0);
+        productUpdate.setQuantity(8);
+        productUpdate.setCategory(category);
+        ResponseEntity<?> updated = on(PRIMARY_POOL, () -> productService.updateProduct(productId, productUpdate, null));
+        assertEquals(200, updated.getStatusCode().value());
+
+        String etag = updated.getHeaders().getETag();
+        assertEquals(200, on(PRIMARY_POOL, () -> productService.patchProduct(productId,
+                new ProductPatch(null, null, 9, null), etag)).getStatusCode().value());
+        assertEquals(200, on(PRIMARY_POOL, () -> productService.reserveStock(productId, new StockChange(2)))
+                .getStatusCode().value());
+        assertEquals(200, on(PRIMARY_POOL, () -> productService.releaseStock(productId, new StockChange(1)))
+                .getStatusCode().value());
+
+        Product batched = new Product();
+        batched.setProductName("Batched product");
+        batched.setDescription("Batched product description");
+        batched.setPrice(3.0);
+        batched.setQuantity(1);
+        batched.setCategory(category);
+        assertEquals(200, on(PRIMARY_POOL, () -> productService.addProducts(List.of(batched))).getStatusCode().value());
+
+        assertEquals(200, on(PRIMARY_POOL, () -> categoryService.deleteCategory(categoryId)).getStatusCode().value());
+    }
+
+    @Test
+    void clientReadsItsOwnWritesFromThePrimary() throws Exception {
+        replicate();
+        MvcResult write = mockMvc.perform(post("/api/categories").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"categoryName\":\"Sticky category\",\"description\":\"Sticky category description\"}"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Cookie sticky = write.getResponse().getCookie("rw-primary-until");
+        assertNotNull(sticky);
+        String id = JsonPath.read(write.getResponse().getContentAsString(), "$.data.categoryId").toString();
+
+        // the writer is served by the primary, everyone else by the replica that has not caught up yet
+        mockMvc.perform(get("/api/categories/{id}", id).cookie(sticky)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/categories/{id}", id)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void stickyClientDoesNotJoinAReplicaLoad() throws Exception {
+        replicate();
+        MvcResult write = mockMvc.perform(post("/api/categories").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"categoryName\":\"Joined category\",\"description\":\"Joined category description\"}"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Cookie sticky = write.getResponse().getCookie("rw-primary-until");
+        String id = JsonPath.read(write.getResponse().getContentAsString(), "$.data.categoryId").toString();
+
+        // another client's load of the category is still running on the replica when the writer asks for it
+        slowQueries = true;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<MvcResult> replicaRead = executor.submit(() -> mockMvc.perform(get("/api/categories/{id}", id)).andReturn());
+            Thread.sleep(QUERY_LATENCY_MS / 2);
+            mockMvc.perform(get("/api/categories/{id}", id).cookie(sticky)).andExpect(status().isOk());
+            assertEquals(404, replicaRead.get().getResponse().getStatus());
+        } finally {
+            slowQueries = false;
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void streamedExportLeavesNoStickinessOnItsThreads() throws Exception {
+        replicate();
+        MvcResult write = mockMvc.perform(post("/api/categories").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"categoryName\":\"Exporting category\",\"description\":\"Exporting category description\"}"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Cookie sticky = write.getResponse().getCookie("rw-primary-until");
+
+        MvcResult export = mockMvc.perform(get("/api/products/export").cookie(sticky))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // the container thread is back in the pool, the next request it serves is not the sticky client's
+        assertFalse(ReadWriteRouting.isSticky());
+        mockMvc.perform(asyncDispatch(export)).andExpect(status().isOk());
+        assertFalse(ReadWriteRouting.isSticky());
+
+        // a task of the application executor does not see the state of the thread it happens to run on
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products");
+        request.setCookies(sticky);
+        ReadWriteRouting routing = new ReadWriteRouting(Duration.ofMinutes(1));
+        routing.preHandle(request, new MockHttpServletResponse(), null);
+        AtomicBoolean stickyInTask = new AtomicBoolean(true);
+        try {
+            assertTrue(ReadWriteRouting.isSticky());
+            taskDecorator.decorate(() -> stickyInTask.set(ReadWriteRouting.isSticky())).run();
+            assertFalse(stickyInTask.get());
+            assertFalse(ReadWriteRouting.isSticky());
+        } finally {
+            routing.afterCompletion(request, new MockHttpServletResponse(), null, null);
+        }
+    }
+
+    private <T> T on(String pool, Supplier<T> call) {
+        long primaryBefore = uses(PRIMARY_POOL);
+        long replicaBefore = uses(REPLICA_POOL);
+        T result = call.get();
+        long primaryUses = uses(PRIMARY_POOL) - primaryBefore;
+        long replicaUses = uses(REPLICA_POOL) - replicaBefore;
+        if (pool.equals(PRIMARY_POOL)) {
+            assertTrue(primaryUses > 0, "expected the primary pool");
+            assertEquals(0, replicaUses, "replica pool used");
+        } else {
+            assertTrue(replicaUses > 0, "expected the replica pool");
+            assertEquals(0, primaryUses, "primary pool used");
+        }
+        return result;
+    }
+
+    private long uses(String pool) {
+        Timer usage = meterRegistry.find("hikaricp.connections.usage").tag("pool", pool).timer();
+        return usage == null ? 0 : usage.count();
+    }
+
+    // Copies the schema and the rows of the primary onto the replica
+    private static void replicate() throws SQLException {
+        try (Connection primary = DriverManager.getConnection(PRIMARY_URL, "sa", "");
+             Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "");
+             Statement source = primary.createStatement();
+             Statement target = replica.createStatement()) {
+            List<String> script = new ArrayList<>();
+            try (ResultSet rows = source.executeQuery("SCRIPT")) {
+                while (rows.next()) {
+                    script.add(rows.getString(1));
+                }
+            }
+            target.execute("DROP ALL OBJECTS");
+            for (String statement : script) {
+                target.execute(statement);
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class SlowQueryConfig {
+
+        // Wraps the routing DataSource so that every statement execution blocks for QUERY_LATENCY_MS while
+        // slowQueries is set
+        @Bean
+        static BeanPostProcessor slowQueryPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource) {
+                        return new DelegatingDataSource(dataSource) {
+                            @Override
+                            public Connection getConnection() throws SQLException {
+                                return slowed(Connection.class, super.getConnection());
+                            }
+                        };
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T slowed(Class<T> type, T target) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                if (slowQueries && method.getName().startsWith("execute")) {
+                    Thread.sleep(QUERY_LATENCY_MS);
+                }
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+                if (result instanceof PreparedStatement statement) {
+                    return slowed(PreparedStatement.class, statement);
+                }
+                return result;
+            });
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.task.services;
+
+import com.task.entities.Category;
+import com.task.entities.Product;
+import com.task.repositories.CategoryRepo;
+import com.task.repositories.ProductRepo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Concurrent reservations combined by the aggregator must never take more than the stock
+@SpringBootTest(properties = "app.stock.aggregation.enabled=true")
+@ActiveProfiles("test")
+class StockAggregatorTests {
+
+    @Autowired
+    private StockAggregator stockAggregator;
+
+    @Autowired
+    private ProductRepo productRepo;
+
+    @Autowired
+    private CategoryRepo categoryRepo;
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        Category category = new Category();
+        category.setCategoryName("Stock category");
+        category.setDescription("Stock category description");
+        category = categoryRepo.save(category);
+
+        Product product = new Product();
+        product.setProductName("Hot product");
+        product.setDescription("Hot product description");
+        product.setPrice(10);
+        product.setQuantity(100);
+        product.setCategory(category);
+        long productId = productRepo.save(product).getProductId();
+
+        // 300 reservations of 1 and 20 releases of 1 against a stock of 100
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        List<Future<Boolean>> reservations = new ArrayList<>();
+        List<Future<Boolean>> releases = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            reservations.add(executor.submit(() -> stockAggregator.reserve(productId, 1)));
+            if (i % 15 == 0) {
+                releases.add(executor.submit(() -> stockAggregator.release(productId, 1)));
+            }
+        }
+        int reserved = 0;
+        for (Future<Boolean> reservation : reservations) {
+            reserved += reservation.get() ? 1 : 0;
+        }
+        for (Future<Boolean> release : releases) {
+            release.get();
+        }
+        executor.shutdown();
+
+        int left = productRepo.findById(productId).orElseThrow().getQuantity();
+        assertEquals(100 + releases.size(), reserved + left);
+        assertTrue(left >= 0);
+        assertFalse(stockAggregator.reserve(productId, left + 1));
+    }
+}